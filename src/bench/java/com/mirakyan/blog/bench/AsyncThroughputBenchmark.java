@@ -0,0 +1,144 @@
+package com.mirakyan.blog.bench;
+
+import com.mirakyan.blog.dto.PostDto;
+import com.mirakyan.blog.metrics.LatencyHistogram;
+import com.mirakyan.blog.service.PostService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Пропускная способность GET /api/posts/{id} при большом числе одновременных медленных клиентов: каждый клиент
+ * держит keep-alive соединение и делает паузу между запросами, а каждое обращение к БД стоит {@code db-latency-ms}.
+ * Прогоняется дважды — на пуле платформенных потоков и на виртуальных потоках (web.async.virtual-threads).
+ * <p>
+ * Запуск: {@code mvn -Pbench test-compile exec:java}, параметры — через -Dbench.*:
+ * clients (10000), duration-seconds (20), warmup-seconds (5), think-ms (100), db-latency-ms (20),
+ * pool-size (500), container-threads (200), platform-threads (200), posts (100), modes (platform,virtual).
+ */
+public class AsyncThroughputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("bench.clients", 10_000);
+        int durationSeconds = Integer.getInteger("bench.duration-seconds", 20);
+        int warmupSeconds = Integer.getInteger("bench.warmup-seconds", 5);
+        long thinkMs = Long.getLong("bench.think-ms", 100);
+        long dbLatencyMs = Long.getLong("bench.db-latency-ms", 20);
+        int poolSize = Integer.getInteger("bench.pool-size", 500);
+        int containerThreads = Integer.getInteger("bench.container-threads", 200);
+        int platformThreads = Integer.getInteger("bench.platform-threads", 200);
+        int posts = Integer.getInteger("bench.posts", 100);
+        String[] modes = System.getProperty("bench.modes", "platform,virtual").split(",");
+
+        // кэши отдали бы всё из памяти и спрятали бы ожидание БД, которое и измеряем
+        System.setProperty("cache.posts.enabled", "false");
+        System.setProperty("cache.feed.enabled", "false");
+        System.setProperty("db.pool.max-size", String.valueOf(poolSize));
+        System.setProperty("db.pool.connection-timeout-ms", "30000");
+        System.setProperty("web.async.platform-threads", String.valueOf(platformThreads));
+        System.setProperty("web.async.timeout-ms", "60000");
+
+        System.out.printf("clients=%d think=%dms dbLatency=%dms pool=%d containerThreads=%d platformThreads=%d%n",
+                clients, thinkMs, dbLatencyMs, poolSize, containerThreads, platformThreads);
+        System.out.printf("%-9s %10s %8s %9s %9s %9s %9s%n", "mode", "req/s", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (String mode : modes) {
+            System.setProperty("web.async.virtual-threads", String.valueOf("virtual".equals(mode.trim())));
+            try (BenchServer server = new BenchServer(containerThreads, SlowDataSource.replacing(dbLatencyMs))) {
+                List<Long> ids = seed(server.bean(PostService.class), posts);
+                Result result = run(server.port(), ids, clients, thinkMs, warmupSeconds, durationSeconds);
+                System.out.printf("%-9s %10.0f %8d %9.1f %9.1f %9.1f %9.1f%n", mode.trim(),
+                        result.requests / (double) durationSeconds, result.errors,
+                        result.latency.percentileMicros(50) / 1000.0,
+                        result.latency.percentileMicros(99) / 1000.0,
+                        result.latency.percentileMicros(99.9) / 1000.0,
+                        result.latency.maxMicros() / 1000.0);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static List<Long> seed(PostService postService, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(postService.createPost(PostDto.builder()
+                    .title("Bench post " + i)
+                    .text("Text of bench post " + i)
+                    .tags(List.of("bench"))
+                    .build()).getId());
+        }
+        return ids;
+    }
+
+    private record Result(long requests, long errors, LatencyHistogram latency) {
+    }
+
+    private static Result run(int port, List<Long> ids, int clients, long thinkMs,
+                              int warmupSeconds, int durationSeconds) throws InterruptedException {
+        ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+        // у HttpClient свой исполнитель: clientThreads закрывается сразу после запуска клиентов
+        ExecutorService httpThreads = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(httpThreads)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder requests = new LongAdder();
+        LongAdder errors = new LongAdder();
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long measureTo = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        for (int c = 0; c < clients; c++) {
+            clientThreads.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                // клиенты стартуют вразнобой, а не одной волной
+                sleep(random.nextLong(thinkMs + 1));
+                while (System.nanoTime() < measureTo) {
+                    long id = ids.get(random.nextInt(ids.size()));
+                    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/posts/" + id))
+                            .timeout(Duration.ofSeconds(60))
+                            .GET()
+                            .build();
+                    long start = System.nanoTime();
+                    boolean ok;
+                    try {
+                        ok = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                    } catch (Exception e) {
+                        ok = false;
+                    }
+                    long end = System.nanoTime();
+                    if (start >= measureFrom && end <= measureTo) {
+                        requests.increment();
+                        latency.recordNanos(end - start);
+                        if (!ok) {
+                            errors.increment();
+                        }
+                    }
+                    sleep(thinkMs);
+                }
+            });
+        }
+        clientThreads.shutdown();
+        clientThreads.awaitTermination(warmupSeconds + durationSeconds + 120L, TimeUnit.SECONDS);
+        httpThreads.shutdownNow();
+        return new Result(requests.sum(), errors.sum(), latency);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.mirakyan.blog.bench;
+
+import ch.qos.logback.classic.Level;
+import com.mirakyan.blog.config.WebConfiguration;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Приложение во встроенном Tomcat для нагрузочных прогонов: тот же WebConfiguration, что и в war, но с тестовыми
+ * application.properties (H2 в памяти). Свойства приложения переопределяются через System properties до старта.
+ */
+public class BenchServer implements AutoCloseable {
+
+    private final Tomcat tomcat;
+    private final AnnotationConfigWebApplicationContext context;
+    private final int port;
+
+    /**
+     * @param containerThreads размер пула потоков коннектора (maxThreads)
+     * @param postProcessor    необязательная подмена бинов, например медленный DataSource
+     */
+    public BenchServer(int containerThreads, BeanPostProcessor postProcessor) throws LifecycleException, IOException {
+        // без logback.xml корневой уровень DEBUG: логирование каждого запроса измерялось бы вместо обработки
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME))
+                .setLevel(Level.toLevel(System.getProperty("bench.log-level", "WARN")));
+        Path baseDir = Files.createTempDirectory("blog-bench-");
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        Connector connector = tomcat.getConnector();
+        connector.setProperty("maxThreads", String.valueOf(containerThreads));
+        // держим открытыми соединения всех клиентов, иначе упрёмся в лимит коннектора, а не в обработку
+        connector.setProperty("maxConnections", "50000");
+        connector.setProperty("acceptCount", "10000");
+        connector.setProperty("maxKeepAliveRequests", "-1");
+
+        context = new AnnotationConfigWebApplicationContext();
+        // exec:java и JMH запускают код в своём загрузчике классов — он должен быть и у приложения
+        context.setClassLoader(BenchServer.class.getClassLoader());
+        context.register(WebConfiguration.class);
+        if (postProcessor != null) {
+            context.addBeanFactoryPostProcessor(beanFactory -> beanFactory.addBeanPostProcessor(postProcessor));
+        }
+
+        Context webapp = tomcat.addContext("", baseDir.toString());
+        webapp.setParentClassLoader(BenchServer.class.getClassLoader());
+        Wrapper dispatcher = Tomcat.addServlet(webapp, "dispatcher", new DispatcherServlet(context));
+        dispatcher.setAsyncSupported(true);
+        dispatcher.setLoadOnStartup(1);
+        webapp.addServletMappingDecoded("/", "dispatcher");
+
+        tomcat.start();
+        port = connector.getLocalPort();
+    }
+
+    public int port() {
+        return port;
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() throws LifecycleException {
+        try {
+            tomcat.stop();
+            tomcat.destroy();
+        } finally {
+            // контекст передан сервлету готовым, поэтому сервлет его не закрывает
+            context.close();
+        }
+    }
+}
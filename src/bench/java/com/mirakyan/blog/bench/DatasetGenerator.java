@@ -0,0 +1,155 @@
+package com.mirakyan.blog.bench;
+
+import com.mirakyan.blog.image.ImageStore;
+import com.mirakyan.blog.model.Comment;
+import com.mirakyan.blog.model.Post;
+import com.mirakyan.blog.repository.CommentRepository;
+import com.mirakyan.blog.repository.PostRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Синтетический набор данных в масштабе продакшена: теги постов по Ципфу (несколько тегов на пост, популярные
+ * встречаются в большинстве постов), число комментариев на пост по степенному закону (у большинства ноль-один,
+ * у немногих — сотни), длина текста от абзаца до статьи, часть постов с изображениями. Пишется через
+ * репозитории пачками, в обход HTTP, чтобы заполнение не занимало больше самого прогона.
+ */
+public class DatasetGenerator {
+
+    /**
+     * @param posts           количество постов
+     * @param tags            размер словаря тегов
+     * @param tagExponent     показатель Ципфа для тегов
+     * @param maxComments     максимум комментариев на пост
+     * @param commentExponent показатель степенного закона числа комментариев
+     * @param imageRatio      доля постов с изображением
+     */
+    public record Spec(int posts, int tags, double tagExponent, int maxComments, double commentExponent, double imageRatio) {
+    }
+
+    /**
+     * Что создано: id постов в порядке вставки, посты с изображениями и словарь тегов по убыванию популярности.
+     */
+    public record Dataset(List<Long> postIds, List<Long> postsWithImages, List<String> tags, long comments) {
+    }
+
+    private static final int BATCH = 500;
+    private static final int DISTINCT_IMAGES = 16;
+
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final ImageStore imageStore;
+    private final TransactionTemplate tx;
+
+    public DatasetGenerator(PostRepository postRepository, CommentRepository commentRepository, ImageStore imageStore,
+                            PlatformTransactionManager transactionManager) {
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.imageStore = imageStore;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    public Dataset generate(Spec spec) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> vocabulary = new ArrayList<>(spec.tags());
+        for (int i = 0; i < spec.tags(); i++) {
+            vocabulary.add("tag" + i);
+        }
+        ZipfDistribution tagRank = new ZipfDistribution(spec.tags(), spec.tagExponent());
+        // ранг 0 — пост без комментариев
+        ZipfDistribution commentCount = new ZipfDistribution(spec.maxComments() + 1, spec.commentExponent());
+        ZipfDistribution likeCount = new ZipfDistribution(10_000, 1.2);
+        List<String> images = storeImages();
+
+        List<Long> postIds = new ArrayList<>(spec.posts());
+        List<Long> withImages = new ArrayList<>();
+        long comments = 0;
+        Instant start = Instant.now().minus(spec.posts(), ChronoUnit.MINUTES);
+        for (int from = 0; from < spec.posts(); from += BATCH) {
+            List<Post> batch = new ArrayList<>(BATCH);
+            for (int i = from; i < Math.min(from + BATCH, spec.posts()); i++) {
+                Set<String> postTags = new LinkedHashSet<>();
+                int tagCount = 1 + random.nextInt(4);
+                while (postTags.size() < Math.min(tagCount, spec.tags())) {
+                    postTags.add(vocabulary.get(tagRank.sample()));
+                }
+                Instant created = start.plus(i, ChronoUnit.MINUTES);
+                boolean image = random.nextDouble() < spec.imageRatio();
+                batch.add(Post.builder()
+                        .title("Post " + i + " about " + String.join(" and ", postTags))
+                        .text(text(random))
+                        .tags(postTags.toArray(String[]::new))
+                        .likesCount(likeCount.sample())
+                        .commentsCount(0)
+                        .imagePath(image ? images.get(random.nextInt(images.size())) : null)
+                        .createdAt(created)
+                        .updatedAt(created)
+                        .build());
+            }
+            tx.executeWithoutResult(status -> postRepository.insertAll(batch));
+            List<Comment> commentBatch = new ArrayList<>();
+            for (Post post : batch) {
+                postIds.add(post.getId());
+                if (post.getImagePath() != null) {
+                    withImages.add(post.getId());
+                }
+                int count = commentCount.sample();
+                for (int c = 0; c < count; c++) {
+                    commentBatch.add(Comment.builder().postId(post.getId()).text("Comment " + c + " on post " + post.getId())
+                            .createdAt(post.getCreatedAt()).updatedAt(post.getCreatedAt()).build());
+                }
+            }
+            comments += commentBatch.size();
+            tx.executeWithoutResult(status -> {
+                for (int c = 0; c < commentBatch.size(); c += BATCH) {
+                    commentRepository.insertAll(commentBatch.subList(c, Math.min(c + BATCH, commentBatch.size())));
+                }
+                commentBatch.stream()
+                        .collect(Collectors.groupingBy(Comment::getPostId, Collectors.counting()))
+                        .forEach((postId, count) -> postRepository.addCommentsCount(postId, count.intValue()));
+            });
+        }
+        return new Dataset(postIds, withImages, vocabulary, comments);
+    }
+
+    // от короткой заметки до длинной статьи: длина тоже с тяжёлым хвостом
+    private static String text(ThreadLocalRandom random) {
+        int words = (int) Math.min(5_000, 20 / Math.pow(1 - random.nextDouble(), 0.8));
+        StringBuilder text = new StringBuilder(words * 7);
+        for (int i = 0; i < words; i++) {
+            text.append("word").append(i % 97).append(' ');
+        }
+        return text.toString().trim();
+    }
+
+    private List<String> storeImages() throws IOException {
+        List<String> keys = new ArrayList<>(DISTINCT_IMAGES);
+        for (int i = 0; i < DISTINCT_IMAGES; i++) {
+            BufferedImage image = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            g.setColor(Color.getHSBColor(i / (float) DISTINCT_IMAGES, 0.6f, 0.9f));
+            g.fillRect(0, 0, 256, 256);
+            g.dispose();
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", png);
+            keys.add(imageStore.store(new ByteArrayInputStream(png.toByteArray())));
+        }
+        return keys;
+    }
+}
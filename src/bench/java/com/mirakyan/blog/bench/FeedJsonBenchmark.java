@@ -0,0 +1,59 @@
+package com.mirakyan.blog.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mirakyan.blog.dto.PostDto;
+import com.mirakyan.blog.dto.PostsResponseDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация страницы ленты в JSON тем же ObjectMapper, что у MVC-конвертера из WebConfiguration.
+ * <p>
+ * Запуск: {@code mvn -Pbench test-compile exec:exec@jmh -Djmh.args=FeedJsonBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedJsonBenchmark {
+
+    @Param({"10", "50"})
+    public int pageSize;
+
+    private ObjectMapper mapper;
+    private PostsResponseDto page;
+
+    @Setup
+    public void setUp() {
+        mapper = new MappingJackson2HttpMessageConverter().getObjectMapper();
+        List<PostDto> posts = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            posts.add(PostDto.builder().id((long) i).title("Заголовок поста " + i)
+                    .text("Текст превью поста ".repeat(6) + "…")
+                    .tags(List.of("java", "spring", "tag" + i)).likesCount(i * 3).commentsCount(i).build());
+        }
+        page = PostsResponseDto.builder().posts(posts).hasPrev(true).hasNext(true).lastPage(20).build();
+    }
+
+    // так пишет конвертер: writeValue корневого объекта
+    @Benchmark
+    public byte[] serializePage() throws Exception {
+        return mapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,98 @@
+package com.mirakyan.blog.bench;
+
+import com.mirakyan.blog.model.Post;
+import com.mirakyan.blog.repository.PostRepository;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Сколько читает и выделяет одна страница ленты: прежний запрос с полным text против запроса ленты репозитория,
+ * который читает хранимое превью (posts.preview). Посты с длинными телами, страницы по порядку с OFFSET.
+ * <p>
+ * Запуск: {@code mvn -Pbench test-compile exec:java -Dbench.main=com.mirakyan.blog.bench.FeedPreviewBenchmark},
+ * параметры: posts (2000), text-kb (16), page-size (10), pages (3000), warmup-pages (1000).
+ */
+public class FeedPreviewBenchmark {
+
+    // запрос ленты до введения превью: полные тела постов приходят из БД и живут до обрезки в сервисе
+    private static final String FULL_TEXT_SQL = "SELECT id, title, text, created_at, updated_at, likes_count, comments_count, image_path, tags " +
+            "FROM posts ORDER BY created_at DESC, id DESC LIMIT :limit OFFSET :offset";
+
+    public static void main(String[] args) throws Exception {
+        int posts = Integer.getInteger("bench.posts", 2000);
+        int textKb = Integer.getInteger("bench.text-kb", 16);
+        int pageSize = Integer.getInteger("bench.page-size", 10);
+        int pages = Integer.getInteger("bench.pages", 3000);
+        int warmupPages = Integer.getInteger("bench.warmup-pages", 1000);
+
+        try (BenchServer server = new BenchServer(1, null)) {
+            PostRepository repository = server.bean(PostRepository.class);
+            NamedParameterJdbcTemplate jdbc = server.bean(NamedParameterJdbcTemplate.class);
+            seed(repository, posts, textKb);
+            int pageCount = Math.max(1, posts / pageSize);
+
+            IntFunction<List<String>> fullText = page -> jdbc.query(FULL_TEXT_SQL,
+                    new MapSqlParameterSource("limit", pageSize).addValue("offset", page * pageSize),
+                    (rs, rowNum) -> {
+                        // те же столбцы, что читает маппер репозитория
+                        rs.getLong("id");
+                        rs.getString("title");
+                        rs.getTimestamp("created_at");
+                        rs.getTimestamp("updated_at");
+                        rs.getInt("likes_count");
+                        rs.getInt("comments_count");
+                        rs.getString("image_path");
+                        rs.getArray("tags");
+                        return rs.getString("text");
+                    });
+            IntFunction<List<String>> preview = page -> repository.findFiltered(null, null, page * pageSize, pageSize)
+                    .stream().map(Post::getText).toList();
+
+            System.out.printf("posts=%d text=%dKB pageSize=%d pages=%d%n", posts, textKb, pageSize, pages);
+            System.out.printf("%-10s %16s %18s %12s%n", "query", "text chars/page", "allocated KB/page", "us/page");
+            measure("full-text", fullText, pageCount, warmupPages, pages);
+            measure("preview", preview, pageCount, warmupPages, pages);
+        }
+        System.exit(0);
+    }
+
+    private static void seed(PostRepository repository, int count, int textKb) {
+        String text = "lorem ipsum ".repeat(textKb * 1024 / 12);
+        List<Post> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Instant now = Instant.now();
+            batch.add(Post.builder().title("Bench post " + i).text(text + i).tags(new String[]{"bench"})
+                    .likesCount(0).commentsCount(0).createdAt(now).updatedAt(now).build());
+            if (batch.size() == 500) {
+                repository.insertAll(batch);
+                batch.clear();
+            }
+        }
+        repository.insertAll(batch);
+    }
+
+    private static void measure(String name, IntFunction<List<String>> query, int pageCount, int warmupPages, int pages) {
+        for (int i = 0; i < warmupPages; i++) {
+            query.apply(i % pageCount);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long chars = 0;
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long started = System.nanoTime();
+        for (int i = 0; i < pages; i++) {
+            for (String text : query.apply(i % pageCount)) {
+                chars += text.length();
+            }
+        }
+        long elapsedNanos = System.nanoTime() - started;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        System.out.printf("%-10s %16d %18.1f %12.1f%n", name, chars / pages, allocated / 1024.0 / pages,
+                elapsedNanos / 1000.0 / pages);
+    }
+}
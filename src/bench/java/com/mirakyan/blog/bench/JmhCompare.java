@@ -0,0 +1,86 @@
+package com.mirakyan.blog.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Сравнение двух результатов JMH в JSON (-rf json), например с двух коммитов. Регрессия — ухудшение больше
+ * порога в процентах и больше суммы погрешностей обоих замеров. Код выхода 1, если регрессии есть.
+ * <p>
+ * Запуск: {@code mvn -Pbench test-compile exec:java -Dbench.main=com.mirakyan.blog.bench.JmhCompare
+ * -Dexec.args="base.json target/jmh-result.json"}, порог — -Dbench.threshold-percent (10).
+ */
+public class JmhCompare {
+
+    private record Score(String mode, double score, double error, String unit) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: JmhCompare <base.json> <current.json>");
+            System.exit(2);
+        }
+        double thresholdPercent = Double.parseDouble(System.getProperty("bench.threshold-percent", "10"));
+        Map<String, Score> base = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "benchmark", "base", "current", "change");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = base.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-70s %14s %14.3f %9s%n", entry.getKey(), "-", now.score(), "new");
+                continue;
+            }
+            double change = (now.score() - before.score()) / before.score() * 100;
+            // для пропускной способности (thrpt) больше — лучше, для времени (avgt, sample, ss) — хуже
+            double worse = "thrpt".equals(now.mode()) ? -change : change;
+            boolean regression = worse > thresholdPercent
+                    && Math.abs(now.score() - before.score()) > now.error() + before.error();
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), before.score(), now.score(), change,
+                    now.unit(), regression ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d regression(s), threshold %.1f%%%n", regressions, thresholdPercent);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    // ключ — имя бенчмарка с параметрами, чтобы строки с разными @Param сравнивались попарно
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(shortName(run.path("benchmark").asText()));
+            JsonNode params = run.path("params");
+            if (params.isObject()) {
+                Map<String, String> sorted = new TreeMap<>();
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    sorted.put(field.getKey(), field.getValue().asText());
+                }
+                key.append(sorted);
+            }
+            JsonNode metric = run.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            scores.put(key.toString(), new Score(run.path("mode").asText(), metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.path("scoreUnit").asText()));
+        }
+        return scores;
+    }
+
+    private static String shortName(String benchmark) {
+        int method = benchmark.lastIndexOf('.');
+        int type = benchmark.lastIndexOf('.', method - 1);
+        return type < 0 ? benchmark : benchmark.substring(type + 1);
+    }
+}
@@ -0,0 +1,252 @@
+package com.mirakyan.blog.bench;
+
+import com.mirakyan.blog.image.ImageStore;
+import com.mirakyan.blog.metrics.LatencyHistogram;
+import com.mirakyan.blog.repository.CommentRepository;
+import com.mirakyan.blog.repository.PostRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сквозной нагрузочный прогон: синтетический набор данных ({@link DatasetGenerator}) в H2 или локальном PostgreSQL
+ * и смесь запросов ко всему стеку DispatcherServlet во встроенном Tomcat. Популярность постов — по Ципфу, так что
+ * кэши и горячие строки нагружаются как в продакшене. Отчёт — пропускная способность и p50/p99/p999 по эндпоинтам.
+ * <p>
+ * Запуск: {@code mvn -Pbench test-compile exec:java -Dbench.main=com.mirakyan.blog.bench.LoadHarness}, параметры -Dbench.*:
+ * posts (10000), tags (200), tag-exponent (1.1), max-comments (500), comment-exponent (1.5), image-ratio (0.2),
+ * hot-exponent (1.0), clients (64), think-ms (0), warmup-seconds (10), duration-seconds (30), container-threads (200),
+ * mix (feed=40,post=30,like=10,comment=5,image=15).
+ * PostgreSQL: -Ddb.driver=org.postgresql.Driver -Ddb.url=jdbc:postgresql://localhost/blog -Ddb.username=... -Ddb.password=...
+ * -Ddb.schema=file:src/main/resources/schema.sql (H2 в памяти каждый раз пустая, в PostgreSQL сгенерированные данные дописываются к существующим).
+ */
+public class LoadHarness {
+
+    enum Endpoint {
+        FEED("GET /api/posts"),
+        POST("GET /api/posts/{id}"),
+        LIKE("POST /api/posts/{id}/likes"),
+        COMMENT("POST /api/posts/{id}/comments"),
+        IMAGE("GET /api/posts/{id}/image");
+
+        final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+    }
+
+    private record Stats(LongAdder requests, LongAdder errors, LatencyHistogram latency) {
+        Stats() {
+            this(new LongAdder(), new LongAdder(), new LatencyHistogram());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        DatasetGenerator.Spec spec = new DatasetGenerator.Spec(
+                Integer.getInteger("bench.posts", 10_000),
+                Integer.getInteger("bench.tags", 200),
+                Double.parseDouble(System.getProperty("bench.tag-exponent", "1.1")),
+                Integer.getInteger("bench.max-comments", 500),
+                Double.parseDouble(System.getProperty("bench.comment-exponent", "1.5")),
+                Double.parseDouble(System.getProperty("bench.image-ratio", "0.2")));
+        double hotExponent = Double.parseDouble(System.getProperty("bench.hot-exponent", "1.0"));
+        int clients = Integer.getInteger("bench.clients", 64);
+        long thinkMs = Long.getLong("bench.think-ms", 0);
+        int warmupSeconds = Integer.getInteger("bench.warmup-seconds", 10);
+        int durationSeconds = Integer.getInteger("bench.duration-seconds", 30);
+        int containerThreads = Integer.getInteger("bench.container-threads", 200);
+        Map<Endpoint, Integer> mix = parseMix(System.getProperty("bench.mix", "feed=40,post=30,like=10,comment=5,image=15"));
+
+        if (System.getProperty("images.dir") == null) {
+            System.setProperty("images.dir", Files.createTempDirectory("blog-bench-images-").toString());
+        }
+        System.setProperty("db.pool.connection-timeout-ms", "30000");
+        System.setProperty("web.async.timeout-ms", "60000");
+
+        try (BenchServer server = new BenchServer(containerThreads, null)) {
+            DatasetGenerator generator = new DatasetGenerator(server.bean(PostRepository.class),
+                    server.bean(CommentRepository.class), server.bean(ImageStore.class),
+                    server.bean(PlatformTransactionManager.class));
+            long seedStart = System.nanoTime();
+            DatasetGenerator.Dataset dataset = generator.generate(spec);
+            System.out.printf("seeded %d posts (%d with images), %d comments, %d tags in %d ms%n",
+                    dataset.postIds().size(), dataset.postsWithImages().size(), dataset.comments(), dataset.tags().size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+            System.out.printf("clients=%d think=%dms warmup=%ds duration=%ds mix=%s%n",
+                    clients, thinkMs, warmupSeconds, durationSeconds, mix);
+
+            Map<Endpoint, Stats> stats = new EnumMap<>(Endpoint.class);
+            for (Endpoint endpoint : Endpoint.values()) {
+                stats.put(endpoint, new Stats());
+            }
+            Stats total = new Stats();
+            run(server.port(), dataset, spec, hotExponent, mix, clients, thinkMs, warmupSeconds, durationSeconds,
+                    stats, total);
+            report(stats, total, durationSeconds);
+        }
+        System.exit(0);
+    }
+
+    private static void run(int port, DatasetGenerator.Dataset dataset, DatasetGenerator.Spec spec, double hotExponent,
+                            Map<Endpoint, Integer> mix, int clients, long thinkMs, int warmupSeconds,
+                            int durationSeconds, Map<Endpoint, Stats> stats, Stats total) throws InterruptedException {
+        // популярность не совпадает с возрастом поста: ранги Ципфа раздаются постам вперемешку
+        List<Long> hotPosts = new ArrayList<>(dataset.postIds());
+        Collections.shuffle(hotPosts);
+        List<Long> hotImages = new ArrayList<>(dataset.postsWithImages());
+        Collections.shuffle(hotImages);
+        ZipfDistribution postRank = new ZipfDistribution(hotPosts.size(), hotExponent);
+        ZipfDistribution imageRank = hotImages.isEmpty() ? null : new ZipfDistribution(hotImages.size(), hotExponent);
+        ZipfDistribution tagRank = new ZipfDistribution(dataset.tags().size(), spec.tagExponent());
+        // листают в основном первые страницы ленты
+        ZipfDistribution pageRank = new ZipfDistribution(Math.max(1, Math.min(100, hotPosts.size() / 10)), 1.2);
+
+        Endpoint[] endpoints = mix.keySet().toArray(Endpoint[]::new);
+        int[] cumulative = new int[endpoints.length];
+        for (int i = 0; i < endpoints.length; i++) {
+            cumulative[i] = (i == 0 ? 0 : cumulative[i - 1]) + mix.get(endpoints[i]);
+        }
+        int weightSum = cumulative[endpoints.length - 1];
+
+        String base = "http://localhost:" + port;
+        ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+        // у HttpClient свой исполнитель: clientThreads закрывается сразу после запуска клиентов
+        ExecutorService httpThreads = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(httpThreads)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long measureTo = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        for (int c = 0; c < clients; c++) {
+            clientThreads.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < measureTo) {
+                    int pick = random.nextInt(weightSum);
+                    int slot = 0;
+                    while (cumulative[slot] <= pick) {
+                        slot++;
+                    }
+                    Endpoint endpoint = endpoints[slot];
+                    if (endpoint == Endpoint.IMAGE && imageRank == null) {
+                        endpoint = Endpoint.POST;
+                    }
+                    long postId = hotPosts.get(postRank.sample());
+                    HttpRequest.Builder request = switch (endpoint) {
+                        case FEED -> {
+                            // треть запросов ленты — поиск по популярному тегу
+                            String search = random.nextInt(3) == 0 ? "#" + dataset.tags().get(tagRank.sample()) : "";
+                            yield HttpRequest.newBuilder(URI.create(base + "/api/posts?search="
+                                    + URLEncoder.encode(search, StandardCharsets.UTF_8)
+                                    + "&pageNumber=" + (1 + pageRank.sample()) + "&pageSize=10")).GET();
+                        }
+                        case POST -> HttpRequest.newBuilder(URI.create(base + "/api/posts/" + postId)).GET();
+                        case LIKE -> HttpRequest.newBuilder(URI.create(base + "/api/posts/" + postId + "/likes"))
+                                .POST(HttpRequest.BodyPublishers.noBody());
+                        case COMMENT -> HttpRequest.newBuilder(URI.create(base + "/api/posts/" + postId + "/comments"))
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(
+                                        "{\"text\":\"load comment " + random.nextInt() + "\",\"postId\":" + postId + "}"));
+                        case IMAGE -> HttpRequest.newBuilder(URI.create(base + "/api/posts/"
+                                + hotImages.get(imageRank.sample()) + "/image")).GET();
+                    };
+                    long start = System.nanoTime();
+                    boolean ok;
+                    try {
+                        int status = http.send(request.timeout(Duration.ofSeconds(60)).build(),
+                                HttpResponse.BodyHandlers.discarding()).statusCode();
+                        ok = status < 400;
+                    } catch (Exception e) {
+                        ok = false;
+                    }
+                    long end = System.nanoTime();
+                    if (start >= measureFrom && end <= measureTo) {
+                        record(stats.get(endpoint), end - start, ok);
+                        record(total, end - start, ok);
+                    }
+                    sleep(thinkMs);
+                }
+            });
+        }
+        clientThreads.shutdown();
+        clientThreads.awaitTermination(warmupSeconds + durationSeconds + 120L, TimeUnit.SECONDS);
+        httpThreads.shutdownNow();
+    }
+
+    private static void record(Stats stats, long nanos, boolean ok) {
+        stats.requests().increment();
+        stats.latency().recordNanos(nanos);
+        if (!ok) {
+            stats.errors().increment();
+        }
+    }
+
+    private static void report(Map<Endpoint, Stats> stats, Stats total, int durationSeconds) {
+        System.out.printf("%-30s %9s %9s %7s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Map.Entry<Endpoint, Stats> entry : stats.entrySet()) {
+            if (entry.getValue().requests().sum() > 0) {
+                print(entry.getKey().label, entry.getValue(), durationSeconds);
+            }
+        }
+        print("total", total, durationSeconds);
+    }
+
+    private static void print(String label, Stats stats, int durationSeconds) {
+        long requests = stats.requests().sum();
+        LatencyHistogram latency = stats.latency();
+        System.out.printf("%-30s %9d %9.0f %7d %9.2f %9.2f %9.2f %9.2f%n", label, requests,
+                requests / (double) durationSeconds, stats.errors().sum(),
+                latency.percentileMicros(50) / 1000.0,
+                latency.percentileMicros(99) / 1000.0,
+                latency.percentileMicros(99.9) / 1000.0,
+                latency.maxMicros() / 1000.0);
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            Endpoint endpoint = Endpoint.valueOf(kv[0].trim().toUpperCase());
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight > 0) {
+                weights.put(endpoint, weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("bench.mix has no positive weights: " + mix);
+        }
+        return weights;
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.mirakyan.blog.bench;
+
+import com.mirakyan.blog.jdbc.InstrumentedDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * DataSource с искусственной задержкой после получения соединения: имитирует сетевую задержку и время запроса
+ * к удалённой БД, которых нет у H2 в памяти. Соединение на время задержки занято, как при настоящем запросе.
+ */
+public class SlowDataSource extends InstrumentedDataSource {
+
+    private final long latencyMs;
+
+    public SlowDataSource(HikariDataSource pool, long latencyMs) {
+        super(pool);
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            connection.close();
+            throw new SQLException("Interrupted", e);
+        }
+        return connection;
+    }
+
+    /**
+     * Подменяет DataSource приложения на медленный с тем же пулом.
+     */
+    public static BeanPostProcessor replacing(long latencyMs) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (latencyMs > 0 && bean instanceof InstrumentedDataSource ds && !(bean instanceof SlowDataSource)) {
+                    return new SlowDataSource((HikariDataSource) ds.getTargetDataSource(), latencyMs);
+                }
+                return bean;
+            }
+        };
+    }
+}
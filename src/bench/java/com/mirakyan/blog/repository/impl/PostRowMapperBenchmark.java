@@ -0,0 +1,118 @@
+package com.mirakyan.blog.repository.impl;
+
+import ch.qos.logback.classic.Level;
+import com.mirakyan.blog.model.Post;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость маппинга одной строки ленты на H2: прежний маппер (поиск столбцов по имени, getObject + getInt,
+ * getArray в try/catch, на H2 — ClassCastException на каждой строке) против маппера по номерам столбцов.
+ * {@code readOnly} — тот же запрос без маппинга, нижняя граница.
+ * <p>
+ * Запуск: {@code mvn -Pbench test-compile exec:exec@jmh -Djmh.args=PostRowMapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostRowMapperBenchmark {
+
+    private static final int ROWS = 500;
+    private static final String SQL = "SELECT id, title, preview AS text, created_at, updated_at, likes_count, comments_count, image_path, tags " +
+            "FROM posts ORDER BY id LIMIT " + ROWS;
+
+    private JdbcTemplate jdbc;
+    private RowMapper<Post> byIndex;
+    private RowMapper<Post> byName;
+
+    @Setup
+    public void setUp() {
+        // без logback.xml корневой уровень DEBUG, а каждое соединение DriverManager открывалось бы заново
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:mapper-bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1", "sa", "", true);
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(dataSource);
+        DataSourceTransactionManager tm = new DataSourceTransactionManager(dataSource);
+        ShardedLikeCounter shardedLikes = new ShardedLikeCounter(named, tm, dataSource, false, 4, 0, 1000, 5000);
+        LikeWriteBehindBuffer likeBuffer = new LikeWriteBehindBuffer(named, shardedLikes, tm, true, 0, 500);
+        PostRepositoryJdbc repository = new PostRepositoryJdbc(named, dataSource, likeBuffer, shardedLikes,
+                "substring", false, "false", 5000, 500);
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            posts.add(new Post("Post " + i, "Text of post " + i, List.of("java", "tag" + i % 10)));
+        }
+        repository.insertAll(posts);
+
+        jdbc = named.getJdbcTemplate();
+        byIndex = repository.mapper;
+        byName = (rs, rowNum) -> {
+            Post.PostBuilder b = Post.builder();
+            b.id(rs.getLong("id"));
+            b.title(rs.getString("title"));
+            b.text(rs.getString("text"));
+            Timestamp created = rs.getTimestamp("created_at");
+            Timestamp updated = rs.getTimestamp("updated_at");
+            b.createdAt(created == null ? null : created.toInstant());
+            b.updatedAt(updated == null ? null : updated.toInstant());
+            int likes = rs.getObject("likes_count") == null ? 0 : rs.getInt("likes_count");
+            b.likesCount((int) (likes + likeBuffer.pendingDelta(rs.getLong("id"))));
+            b.commentsCount(rs.getObject("comments_count") == null ? 0 : rs.getInt("comments_count"));
+            b.imagePath(rs.getString("image_path"));
+            try {
+                java.sql.Array arr = rs.getArray("tags");
+                if (arr != null) {
+                    b.tags((String[]) arr.getArray());
+                }
+            } catch (Exception ignored) {}
+            return b.build();
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Post> byColumnName() {
+        return jdbc.query(SQL, byName);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Post> byColumnIndex() {
+        return jdbc.query(SQL, byIndex);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void readOnly(Blackhole blackhole) {
+        jdbc.query(SQL, rs -> {
+            blackhole.consume(rs.getLong(1));
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package com.mirakyan.blog.service.impl;
+
+import com.mirakyan.blog.dto.PostDto;
+import com.mirakyan.blog.model.Post;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Работа PostServiceImpl на каждый запрос ленты помимо БД: разбор строки поиска и сборка страницы DTO с превью.
+ * <p>
+ * Запуск: {@code mvn -Pbench test-compile exec:exec@jmh -Djmh.args=PostServiceBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostServiceBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+
+    // разбор поиска и сборка DTO не обращаются к зависимостям
+    private static final PostServiceImpl SERVICE = new PostServiceImpl(null, null, null, null, null, null);
+
+    @State(Scope.Benchmark)
+    public static class Search {
+        @Param({"", "spring data jdbc", "#java #jdbc Spring Data #java"})
+        public String query;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Page {
+        // длина текста строк страницы: короче превью и длиннее (строки ленты приходят с превью из 129 символов)
+        @Param({"40", "129"})
+        public int textLength;
+
+        private List<Post> rows;
+
+        @Setup
+        public void setUp() {
+            rows = new ArrayList<>(PAGE_SIZE);
+            Instant now = Instant.now();
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                rows.add(Post.builder().id((long) i).title("Post " + i).text("x".repeat(textLength))
+                        .createdAt(now).updatedAt(now).likesCount(i).commentsCount(i)
+                        .tags(new String[]{"java", "tag" + i}).build());
+            }
+        }
+    }
+
+    @Benchmark
+    public PostServiceImpl.SearchQuery parseSearch(Search search) {
+        return SERVICE.parseSearch(search.query);
+    }
+
+    @Benchmark
+    public List<PostDto> buildPreviewPage(Page page) {
+        return page.rows.stream()
+                .map(SERVICE::convertToDto)
+                .map(SERVICE::truncateTextForPreview)
+                .toList();
+    }
+}
@@ -0,0 +1,110 @@
+package com.mirakyan.blog.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mirakyan.blog.dto.CacheStatsDto;
+import com.mirakyan.blog.dto.PostsResponseDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш страниц ленты по нормализованному запросу (подстрока заголовка, отсортированные теги, позиция, размер).
+ * <p>
+ * Инвалидация по поколениям: поколение входит в ключ, и любое создание/изменение/удаление поста просто
+ * увеличивает счётчик — старые записи становятся недостижимыми и уходят по TTL или вытеснением, перебирать
+ * ключи не нужно. Поколение читается до загрузки страницы, поэтому результат, посчитанный параллельно с записью,
+ * окажется под уже устаревшим поколением. Лайки и комментарии поколение не меняют — их отставание ограничено TTL.
+ */
+@Component
+public class FeedCache {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedCache.class);
+
+    /**
+     * Нормализованный запрос ленты. {@code position} — "page:N" или "cursor:..." для keyset-пагинации.
+     */
+    public record Key(String titleSubstring, List<String> tags, String position, int pageSize, boolean includeTotal) {
+    }
+
+    private record VersionedKey(long generation, Key key) {
+    }
+
+    private final boolean enabled;
+    private final long maxSize;
+    private final Cache<VersionedKey, PostsResponseDto> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public FeedCache(@Value("${cache.feed.enabled:true}") boolean enabled,
+                     @Value("${cache.feed.max-size:1000}") long maxSize,
+                     @Value("${cache.feed.ttl-seconds:5}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(enabled ? maxSize : 0)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        if (enabled) {
+            log.info("Feed cache enabled, maxSize={}, ttlSeconds={}", maxSize, ttlSeconds);
+        }
+    }
+
+    /**
+     * Страница из кэша или из {@code loader}. Как и в {@link PostCache}, внутри пишущей транзакции
+     * результат не кэшируется.
+     */
+    public PostsResponseDto get(Key key, Supplier<PostsResponseDto> loader) {
+        if (!enabled || (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+            return loader.get();
+        }
+        return cache.get(new VersionedKey(generation.get(), key), k -> loader.get());
+    }
+
+    /**
+     * Делает устаревшими все закэшированные страницы: сразу и повторно после завершения транзакции.
+     */
+    public void invalidateAll() {
+        if (!enabled) {
+            return;
+        }
+        generation.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    generation.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public CacheStatsDto stats() {
+        CacheStats stats = cache.stats();
+        return CacheStatsDto.builder()
+                .name("feed")
+                .enabled(enabled)
+                .size(cache.estimatedSize())
+                .maxSize(maxSize)
+                .hits(stats.hitCount())
+                .misses(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictions(stats.evictionCount())
+                .invalidations(generation.get())
+                .build();
+    }
+}
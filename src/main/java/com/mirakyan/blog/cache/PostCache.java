@@ -0,0 +1,130 @@
+package com.mirakyan.blog.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mirakyan.blog.dto.CacheStatsDto;
+import com.mirakyan.blog.model.Post;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Read-through кэш постов по id (Caffeine, вытеснение W-TinyLFU, ограничение по количеству и TTL после записи).
+ * <p>
+ * Закэшированные Post считаются неизменяемыми: изменения счётчиков кладут в кэш новую копию. Инвалидация
+ * выполняется сразу и повторно после завершения транзакции — иначе параллельный читатель мог бы между ними
+ * положить в кэш ещё не перезаписанную версию. Оставшиеся гонки и изменения с других узлов ограничены TTL.
+ */
+@Component
+public class PostCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PostCache.class);
+
+    private final boolean enabled;
+    private final long maxSize;
+    private final Cache<Long, Post> cache;
+    private final LongAdder invalidations = new LongAdder();
+
+    public PostCache(@Value("${cache.posts.enabled:true}") boolean enabled,
+                     @Value("${cache.posts.max-size:10000}") long maxSize,
+                     @Value("${cache.posts.ttl-seconds:60}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(enabled ? maxSize : 0)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        if (enabled) {
+            log.info("Post cache enabled, maxSize={}, ttlSeconds={}", maxSize, ttlSeconds);
+        }
+    }
+
+    /**
+     * Пост из кэша или из {@code loader}; отсутствующие посты не кэшируются. Внутри пишущей транзакции
+     * загруженное не кэшируется: оно может включать ещё не закоммиченные (и, возможно, откатываемые) изменения.
+     */
+    public Optional<Post> get(long id, Function<Long, Optional<Post>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            Post cached = cache.getIfPresent(id);
+            return cached != null ? Optional.of(cached) : loader.apply(id);
+        }
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Пост, если он уже в кэше; не загружает и не влияет на статистику попаданий.
+     */
+    public Optional<Post> peek(long id) {
+        return enabled ? Optional.ofNullable(cache.policy().getIfPresentQuietly(id)) : Optional.empty();
+    }
+
+    public void evict(long id) {
+        if (!enabled) {
+            return;
+        }
+        invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Подменяет счётчик лайков у закэшированного поста; если транзакция откатится — запись инвалидируется.
+     */
+    public void updateLikes(long id, int likesCount) {
+        if (!enabled) {
+            return;
+        }
+        cache.asMap().computeIfPresent(id, (key, post) -> post.toBuilder().likesCount(likesCount).build());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        invalidate(id);
+                    }
+                }
+            });
+        }
+    }
+
+    public CacheStatsDto stats() {
+        CacheStats stats = cache.stats();
+        return CacheStatsDto.builder()
+                .name("posts")
+                .enabled(enabled)
+                .size(cache.estimatedSize())
+                .maxSize(maxSize)
+                .hits(stats.hitCount())
+                .misses(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictions(stats.evictionCount())
+                .invalidations(invalidations.sum())
+                .build();
+    }
+
+    private void invalidate(long id) {
+        if (cache.asMap().remove(id) != null) {
+            invalidations.increment();
+        }
+    }
+}
@@ -2,15 +2,20 @@ package com.mirakyan.blog.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mirakyan.blog.jdbc.InstrumentedDataSource;
+import com.mirakyan.blog.jdbc.TimedNamedParameterJdbcTemplate;
+import com.mirakyan.blog.metrics.MetricsRegistry;
+import com.mirakyan.blog.metrics.SqlTracer;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.jdbc.datasource.init.DataSourceInitializer;
 import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.transaction.PlatformTransactionManager;
@@ -36,19 +41,67 @@ public class DatabaseConfiguration {
     @Value("${db.password}")
     private String dbPassword;
 
-    @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(dbDriver);
-        dataSource.setUrl(dbUrl);
-        dataSource.setUsername(dbUsername);
-        dataSource.setPassword(dbPassword);
+    // Расположение скрипта схемы (Spring Resource): в тестах и бенчмарках classpath:schema.sql — H2-вариант из
+    // src/test/resources, для прогона на PostgreSQL — file:src/main/resources/schema.sql
+    @Value("${db.schema:classpath:schema.sql}")
+    private String schemaLocation;
+
+    @Value("${db.pool.max-size:20}")
+    private int poolMaxSize;
+
+    @Value("${db.pool.min-idle:5}")
+    private int poolMinIdle;
+
+    @Value("${db.pool.connection-timeout-ms:3000}")
+    private long poolConnectionTimeoutMs;
+
+    @Value("${db.pool.idle-timeout-ms:600000}")
+    private long poolIdleTimeoutMs;
+
+    @Value("${db.pool.max-lifetime-ms:1800000}")
+    private long poolMaxLifetimeMs;
+
+    @Value("${db.pool.leak-detection-threshold-ms:20000}")
+    private long poolLeakDetectionThresholdMs;
+
+    @Value("${db.pool.statement-cache-size:256}")
+    private int statementCacheSize;
+
+    @Bean(destroyMethod = "close")
+    public InstrumentedDataSource dataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("blog-pool");
+        config.setDriverClassName(dbDriver);
+        config.setJdbcUrl(dbUrl);
+        config.setUsername(dbUsername);
+        config.setPassword(dbPassword);
+        config.setMaximumPoolSize(poolMaxSize);
+        config.setMinimumIdle(Math.min(poolMinIdle, poolMaxSize));
+        config.setConnectionTimeout(poolConnectionTimeoutMs);
+        config.setIdleTimeout(poolIdleTimeoutMs);
+        config.setMaxLifetime(poolMaxLifetimeMs);
+        config.setLeakDetectionThreshold(poolLeakDetectionThresholdMs);
+        // Как и раньше с DriverManagerDataSource, недоступная БД не должна ронять старт контекста
+        config.setInitializationFailTimeout(-1);
+        if (dbUrl.startsWith("jdbc:postgresql:")) {
+            // Кэш подготовленных выражений живёт в драйвере, по одному на физическое соединение
+            config.addDataSourceProperty("prepareThreshold", "1");
+            config.addDataSourceProperty("preparedStatementCacheQueries", String.valueOf(statementCacheSize));
+            config.addDataSourceProperty("preparedStatementCacheSizeMiB", "5");
+            // пачки INSERT (пакетное создание постов и комментариев) уходят многострочными INSERT
+            config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        }
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(new HikariDataSource(config));
+        dataSource.warmUp(config.getMinimumIdle());
+        log.info("Connection pool configured: maxSize={}, minIdle={}, connectionTimeoutMs={}",
+                poolMaxSize, config.getMinimumIdle(), poolConnectionTimeoutMs);
         return dataSource;
     }
 
     @Bean
-    public NamedParameterJdbcTemplate namedParameterJdbcTemplate(DataSource dataSource) {
-        return new NamedParameterJdbcTemplate(dataSource);
+    public NamedParameterJdbcTemplate namedParameterJdbcTemplate(DataSource dataSource, MetricsRegistry metricsRegistry,
+                                                                 SqlTracer sqlTracer) {
+        return new TimedNamedParameterJdbcTemplate(dataSource, metricsRegistry, sqlTracer);
     }
 
     @Bean
@@ -67,12 +120,12 @@ public class DatabaseConfiguration {
     @Bean
     public DataSourceInitializer dataSourceInitializer(DataSource dataSource) {
         ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
-        populator.addScript(new ClassPathResource("schema.sql"));
+        populator.addScript(new DefaultResourceLoader().getResource(schemaLocation));
         populator.setContinueOnError(true);
         DataSourceInitializer initializer = new DataSourceInitializer();
         initializer.setDataSource(dataSource);
         initializer.setDatabasePopulator(populator);
-        log.info("DataSourceInitializer configured for schema.sql");
+        log.info("DataSourceInitializer configured for {}", schemaLocation);
         return initializer;
     }
 }
@@ -1,21 +1,50 @@
 package com.mirakyan.blog.config;
 
 
+import com.mirakyan.blog.metrics.MetricsRegistry;
+import com.mirakyan.blog.metrics.SqlTracer;
+import com.mirakyan.blog.web.MetricsInterceptor;
+import com.mirakyan.blog.web.SqlTraceInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.multipart.MultipartResolver;
 import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 @EnableWebMvc
 @ComponentScan(basePackages = {"com.mirakyan.blog"})
 @PropertySource("classpath:application.properties")
-public class WebConfiguration {
+@RequiredArgsConstructor
+public class WebConfiguration implements WebMvcConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(WebConfiguration.class);
+
+    private final MetricsRegistry metricsRegistry;
+    private final SqlTracer sqlTracer;
+
+    @Value("${web.async.virtual-threads:true}")
+    private boolean virtualThreads;
+
+    @Value("${web.async.platform-threads:200}")
+    private int platformThreads;
+
+    @Value("${web.async.timeout-ms:30000}")
+    private long asyncTimeoutMs;
 
     @Bean
     public HttpMessageConverter<Object> httpMessageConverter() {
@@ -26,4 +55,43 @@ public class WebConfiguration {
     public MultipartResolver multipartResolver() {
         return new StandardServletMultipartResolver();
     }
+
+    /**
+     * Исполнитель для контроллеров, возвращающих Callable: поток контейнера освобождается сразу, а JDBC и файловый
+     * ввод-вывод ждут на виртуальном потоке. Транзакции @Transactional привязаны к потоку, поэтому весь вызов
+     * сервиса выполняется внутри Callable. Параллелизм к БД по-прежнему ограничивает пул соединений.
+     */
+    @Bean
+    public AsyncTaskExecutor requestTaskExecutor() {
+        if (virtualThreads) {
+            log.info("MVC async requests run on virtual threads");
+            return new VirtualThreadTaskExecutor("request-vt-");
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("request-");
+        executor.setCorePoolSize(platformThreads);
+        executor.setMaxPoolSize(platformThreads);
+        executor.setDaemon(true);
+        log.info("MVC async requests run on {} platform threads", platformThreads);
+        return executor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new MetricsInterceptor(metricsRegistry)).addPathPatterns("/api/**");
+        registry.addInterceptor(sqlTraceInterceptor()).addPathPatterns("/api/**");
+    }
+
+    @Bean
+    public SqlTraceInterceptor sqlTraceInterceptor() {
+        return new SqlTraceInterceptor(sqlTracer);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(requestTaskExecutor());
+        configurer.setDefaultTimeout(asyncTimeoutMs);
+        // SQL-трасса запроса переходит вместе с Callable на поток исполнителя
+        configurer.registerCallableInterceptors(sqlTraceInterceptor());
+    }
 }
@@ -0,0 +1,28 @@
+package com.mirakyan.blog.controller;
+
+import com.mirakyan.blog.cache.FeedCache;
+import com.mirakyan.blog.cache.PostCache;
+import com.mirakyan.blog.dto.CacheStatsDto;
+import com.mirakyan.blog.image.HotImageCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/cache")
+@RequiredArgsConstructor
+public class CacheController {
+
+    private final PostCache postCache;
+    private final FeedCache feedCache;
+    private final HotImageCache hotImageCache;
+
+    @GetMapping
+    public ResponseEntity<List<CacheStatsDto>> getCacheStats() {
+        return ResponseEntity.ok(List.of(postCache.stats(), feedCache.stats(), hotImageCache.stats()));
+    }
+}
@@ -1,59 +1,123 @@
 package com.mirakyan.blog.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mirakyan.blog.dto.CommentDto;
+import com.mirakyan.blog.dto.CommentsBatchDto;
+import com.mirakyan.blog.dto.CommentsPageDto;
 import com.mirakyan.blog.service.CommentService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/posts/{postId}/comments")
 @RequiredArgsConstructor
 public class CommentController {
+    public static final String NDJSON = "application/x-ndjson";
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final CommentService commentService;
+    // общий ObjectMapper приложения (JavaTimeModule и прочие настройки), а не собственный экземпляр
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public ResponseEntity<List<CommentDto>> getComments(@PathVariable Long postId) {
+    public Callable<ResponseEntity<List<CommentDto>>> getComments(@PathVariable Long postId, WebRequest request) {
+        return () -> {
+            // Агрегат COUNT/SUM(id)/MAX(updated_at) дешевле выборки всех комментариев: 304 без загрузки списка
+            String etag = commentService.getCommentsETag(postId);
+            if (etag != null && request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            List<CommentDto> comments = commentService.getCommentsByPostId(postId);
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (etag != null) {
+                ok.eTag(etag);
+            }
+            return ok.body(comments);
+        };
+    }
+
+    // Постранично: limit обязателен, cursor берётся из nextCursor предыдущей страницы
+    @GetMapping(params = "limit")
+    public Callable<ResponseEntity<CommentsPageDto>> getCommentsPage(@PathVariable Long postId,
+                                                                     @RequestParam(name = "limit") int limit,
+                                                                     @RequestParam(name = "cursor", required = false) String cursor) {
+        return () -> ResponseEntity.ok(commentService.getCommentsPage(postId, cursor, Math.min(limit, MAX_PAGE_SIZE)));
+    }
 
-        List<CommentDto> comments = commentService.getCommentsByPostId(postId);
-        return ResponseEntity.ok(comments);
+    // Accept: application/x-ndjson — по объекту JSON на строку, прямо из ResultSet без сборки списка
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamComments(@PathVariable Long postId) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                commentService.streamCommentsByPostId(postId, comment -> {
+                    try {
+                        generator.writeObject(comment);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        // клиент отключился — прерываем чтение ResultSet
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
+
     @GetMapping("/{commentId}")
-    public ResponseEntity<CommentDto> getComment(@PathVariable Long postId, @PathVariable Long commentId) {
+    public Callable<ResponseEntity<CommentDto>> getComment(@PathVariable Long postId, @PathVariable Long commentId) {
 
-        return commentService.getCommentById(postId, commentId)
+        return () -> commentService.getCommentById(postId, commentId)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping
-    public ResponseEntity<CommentDto> addComment(@PathVariable Long postId, @Valid @RequestBody CommentDto commentDto) {
-        return commentService.addCommentToPost(postId, commentDto)
+    public Callable<ResponseEntity<CommentDto>> addComment(@PathVariable Long postId, @Valid @RequestBody CommentDto commentDto) {
+        return () -> commentService.addCommentToPost(postId, commentDto)
                 .map(c -> ResponseEntity.status(HttpStatus.CREATED).body(c)) // 201 Created
                 .orElse(ResponseEntity.notFound().build());
 
     }
 
+    @PostMapping("/batch")
+    public Callable<ResponseEntity<List<CommentDto>>> addComments(@PathVariable Long postId,
+                                                                  @Valid @RequestBody CommentsBatchDto batch) {
+        return () -> commentService.addCommentsToPost(postId, batch.getComments())
+                .map(c -> ResponseEntity.status(HttpStatus.CREATED).body(c))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PutMapping("/{commentId}")
-    public ResponseEntity<CommentDto> updateComment(@PathVariable Long postId,
-                                                    @PathVariable Long commentId,
-                                                    @Valid @RequestBody CommentDto commentDto) {
-      return commentService.updateComment(postId, commentId, commentDto)
+    public Callable<ResponseEntity<CommentDto>> updateComment(@PathVariable Long postId,
+                                                              @PathVariable Long commentId,
+                                                              @Valid @RequestBody CommentDto commentDto) {
+      return () -> commentService.updateComment(postId, commentId, commentDto)
             .map(ResponseEntity::ok)
             .orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{commentId}")
-    public ResponseEntity<Void> deleteComment(@PathVariable Long postId, @PathVariable Long commentId) {
+    public Callable<ResponseEntity<Void>> deleteComment(@PathVariable Long postId, @PathVariable Long commentId) {
 
-        if (commentService.deleteComment(postId, commentId)) {
-            return ResponseEntity.ok().build();
-        } else {
-            return ResponseEntity.notFound().build();
-        }
+        return () -> {
+            if (commentService.deleteComment(postId, commentId)) {
+                return ResponseEntity.ok().build();
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        };
     }
 }
@@ -0,0 +1,30 @@
+package com.mirakyan.blog.controller;
+
+import com.mirakyan.blog.jdbc.InstrumentedDataSource;
+import com.mirakyan.blog.metrics.MetricsRegistry;
+import com.mirakyan.blog.metrics.PrometheusWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final MetricsRegistry metricsRegistry;
+    private final InstrumentedDataSource dataSource;
+
+    @GetMapping
+    public ResponseEntity<String> getMetrics() {
+        PrometheusWriter out = new PrometheusWriter();
+        metricsRegistry.writeTo(out);
+        dataSource.writeTo(out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(PrometheusWriter.CONTENT_TYPE))
+                .body(out.toString());
+    }
+}
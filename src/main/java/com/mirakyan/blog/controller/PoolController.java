@@ -0,0 +1,22 @@
+package com.mirakyan.blog.controller;
+
+import com.mirakyan.blog.dto.PoolStatsDto;
+import com.mirakyan.blog.jdbc.InstrumentedDataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/pool")
+@RequiredArgsConstructor
+public class PoolController {
+
+    private final InstrumentedDataSource dataSource;
+
+    @GetMapping
+    public ResponseEntity<PoolStatsDto> getPoolStats() {
+        return ResponseEntity.ok(dataSource.stats());
+    }
+}
@@ -2,19 +2,32 @@ package com.mirakyan.blog.controller;
 
 
 import com.mirakyan.blog.dto.PostDto;
+import com.mirakyan.blog.dto.PostsBatchDto;
 import com.mirakyan.blog.dto.PostsResponseDto;
+import com.mirakyan.blog.image.ImageFile;
+import com.mirakyan.blog.image.MappedImageResource;
 import com.mirakyan.blog.service.PostService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import jakarta.validation.Valid;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
+// Обработчики возвращают Callable: работа с БД и файлами идёт на исполнителе requestTaskExecutor
+// (виртуальные потоки), а не на потоке контейнера
 @RestController
 @RequestMapping("/api/posts")
 @RequiredArgsConstructor
@@ -22,82 +35,153 @@ public class PostController {
 
     private final PostService postService;
 
+    @Value("${images.cache.max-age-seconds:300}")
+    private long imageMaxAgeSeconds;
+
     @GetMapping
-    public ResponseEntity<PostsResponseDto> getPosts(
+    public Callable<ResponseEntity<PostsResponseDto>> getPosts(
             @RequestParam(name = "search") String search,
-            @RequestParam(name = "pageNumber") int pageNumber,
-            @RequestParam(name = "pageSize") int pageSize) {
+            @RequestParam(name = "pageNumber", required = false, defaultValue = "1") int pageNumber,
+            @RequestParam(name = "pageSize") int pageSize,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "includeTotal", required = false, defaultValue = "true") boolean includeTotal) {
 
-        PostsResponseDto response = postService.getAllPosts(search, pageNumber, pageSize);
-        return ResponseEntity.ok(response);
+        return () -> {
+            // Наличие параметра cursor (в т.ч. пустого — первая страница) включает keyset-пагинацию
+            PostsResponseDto response = cursor != null
+                    ? postService.getPostsByCursor(search, cursor, pageSize)
+                    : postService.getAllPosts(search, pageNumber, pageSize, includeTotal);
+            // С ETag в ответе Spring сам сравнит If-None-Match и вернёт 304 без сериализации тела
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (response.getEtag() != null) {
+                ok.eTag(response.getEtag());
+            }
+            return ok.body(response);
+        };
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<PostDto> getPostById(@PathVariable Long id) {
-        return postService.getPostById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public Callable<ResponseEntity<PostDto>> getPostById(@PathVariable Long id, WebRequest request) {
+        return () -> {
+            // 304 решается по лёгкому запросу версии, до загрузки поста и сборки DTO
+            Optional<String> etag = postService.getPostETag(id);
+            if (etag.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            if (ifNoneMatch(request, etag.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+            }
+            // Пост мог измениться после запроса версии: ETag ответа 200 берётся из загруженного поста
+            return postService.getPostWithETag(id)
+                    .map(loaded -> ResponseEntity.ok().eTag(loaded.etag()).body(loaded.post()))
+                    .orElse(ResponseEntity.notFound().build());
+        };
+    }
+
+    // If-None-Match без побочных эффектов: WebRequest.checkNotModified сразу пишет ETag версии в ответ,
+    // а у ответа 200 ETag должен совпадать с загруженным телом
+    private static boolean ifNoneMatch(WebRequest request, String etag) {
+        String[] values = request.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (values == null) {
+            return false;
+        }
+        for (String value : values) {
+            for (String candidate : value.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     @PostMapping("/{id}")
-    public ResponseEntity<PostDto> getPostByIdViaPost(@PathVariable Long id) { // возвращает то же что и GET
-        return getPostById(id);
+    public Callable<ResponseEntity<PostDto>> getPostByIdViaPost(@PathVariable Long id) { // возвращает то же что и GET
+        return () -> postService.getPostById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
+    // Файл отдаётся потоком через Resource; Range (206), If-None-Match/If-Modified-Since (304) обрабатывает Spring.
+    // Это не zero-copy: ResourceHttpMessageConverter копирует содержимое в поток ответа через небольшой буфер в куче,
+    // но массив размером с файл на запрос не выделяется. sendfile контейнера не используется — он обошёл бы Range/304
+    // Spring и привязал бы код к Tomcat.
+    // size — превью для ленты (пока оно строится, отдаётся оригинал)
     @GetMapping("/{id}/image")
-    public ResponseEntity<byte[]> getPostImage(@PathVariable Long id) {
-        if (!postService.existsById(id)) {
-            return ResponseEntity.notFound().build();
-        }
-        Optional<byte[]> imageOpt = postService.getImage(id);
-        if (!imageOpt.isPresent()) {
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT); // 204 если изображения нет
-        }
-        byte[] bytes = imageOpt.get();
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM); // TODO: определять content-type по расширени��
-        headers.setContentLength(bytes.length);
-        return new ResponseEntity<>(bytes, headers, HttpStatus.OK);
+    public Callable<ResponseEntity<Resource>> getPostImage(@PathVariable Long id,
+                                                           @RequestParam(name = "size", required = false) Integer size) {
+        return () -> {
+            if (!postService.existsById(id)) {
+                return ResponseEntity.notFound().build();
+            }
+            Optional<ImageFile> imageOpt = postService.getImage(id, size);
+            if (imageOpt.isEmpty()) {
+                return ResponseEntity.noContent().build(); // 204 если изображения нет
+            }
+            ImageFile image = imageOpt.get();
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(image.contentType()))
+                    .eTag(image.etag())
+                    .lastModified(image.lastModified())
+                    .cacheControl(CacheControl.maxAge(imageMaxAgeSeconds, TimeUnit.SECONDS).cachePublic())
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .body(image.content() != null
+                            ? new MappedImageResource(image.content(), image.path().toString())
+                            : new FileSystemResource(image.path()));
+        };
     }
 
     @PutMapping(value = "/{id}/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Void> updateImage(@PathVariable Long id, @RequestParam("image") MultipartFile image) {
-        if (image == null || image.isEmpty()) {
-            return ResponseEntity.badRequest().build();
-        }
-        boolean updated = postService.updateImage(id, image);
-        if (updated) {
-            return ResponseEntity.ok().build();
-        }
-        return ResponseEntity.notFound().build();
+    public Callable<ResponseEntity<Void>> updateImage(@PathVariable Long id, @RequestParam("image") MultipartFile image) {
+        return () -> {
+            if (image == null || image.isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+            boolean updated = postService.updateImage(id, image);
+            if (updated) {
+                return ResponseEntity.ok().build();
+            }
+            return ResponseEntity.notFound().build();
+        };
     }
 
     @PostMapping
-    public ResponseEntity<PostDto> createPost(@Valid @RequestBody PostDto postDto) { // @Valid
-        PostDto createdPost = postService.createPost(postDto);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdPost);
+    public Callable<ResponseEntity<PostDto>> createPost(@Valid @RequestBody PostDto postDto) { // @Valid
+        return () -> {
+            PostDto createdPost = postService.createPost(postDto);
+            return ResponseEntity.status(HttpStatus.CREATED).body(createdPost);
+        };
+    }
+
+    // Пакетное создание для миграции контента: весь пакет в одной транзакции, ответ — посты с id в порядке запроса
+    @PostMapping("/batch")
+    public Callable<ResponseEntity<List<PostDto>>> createPosts(@Valid @RequestBody PostsBatchDto batch) {
+        return () -> ResponseEntity.status(HttpStatus.CREATED).body(postService.createPosts(batch.getPosts()));
     }
 
     @PostMapping("/{id}/likes")
-    public ResponseEntity<Integer> incrementLikes(@PathVariable  Long id) {
-        return postService.incrementLikes(id)
+    public Callable<ResponseEntity<Integer>> incrementLikes(@PathVariable  Long id) {
+        return () -> postService.incrementLikes(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<PostDto> updatePost(@PathVariable Long id, @Valid @RequestBody PostDto postDto) {
-        return postService.updatePost(id, postDto)
+    public Callable<ResponseEntity<PostDto>> updatePost(@PathVariable Long id, @Valid @RequestBody PostDto postDto) {
+        return () -> postService.updatePost(id, postDto)
             .map(ResponseEntity::ok)
             .orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deletePost(@PathVariable Long id) {
-        if (postService.deletePost(id)) {
-            return ResponseEntity.ok().build();
-        } else {
-            return ResponseEntity.notFound().build();
-        }
+    public Callable<ResponseEntity<Void>> deletePost(@PathVariable Long id) {
+        return () -> {
+            if (postService.deletePost(id)) {
+                return ResponseEntity.ok().build();
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        };
     }
 }
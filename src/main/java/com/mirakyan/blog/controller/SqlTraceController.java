@@ -0,0 +1,25 @@
+package com.mirakyan.blog.controller;
+
+import com.mirakyan.blog.dto.SqlTraceDto;
+import com.mirakyan.blog.metrics.SqlTracer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/sql-traces")
+@RequiredArgsConstructor
+public class SqlTraceController {
+
+    private final SqlTracer sqlTracer;
+
+    @GetMapping
+    public ResponseEntity<List<SqlTraceDto>> getSlowTraces(@RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(sqlTracer.recentSlowTraces(Math.max(0, limit)));
+    }
+}
@@ -0,0 +1,50 @@
+package com.mirakyan.blog.controller;
+
+import com.mirakyan.blog.dto.TransferProgressDto;
+import com.mirakyan.blog.service.TransferService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Массовая выгрузка и загрузка в NDJSON. Обработчики синхронные, а не Callable: передача большой базы идёт дольше
+ * тайм-аута асинхронных запросов, а поток контейнера всё равно занят записью/чтением тела.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class TransferController {
+
+    private final TransferService transferService;
+
+    @GetMapping("/export")
+    public void exportAll(HttpServletResponse response) throws IOException {
+        response.setContentType(CommentController.NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"blog-export.ndjson\"");
+        transferService.exportAll(response.getOutputStream());
+    }
+
+    // 422 с ходом импорта, если он остановился: lastPostId/lastCommentId — параметры для повторного запуска
+    @PostMapping("/import")
+    public ResponseEntity<TransferProgressDto> importAll(InputStream body,
+                                                         @RequestParam(defaultValue = "0") long afterPostId,
+                                                         @RequestParam(defaultValue = "0") long afterCommentId) {
+        TransferProgressDto progress = transferService.importAll(body, afterPostId, afterCommentId);
+        HttpStatus status = progress.getState() == TransferProgressDto.State.COMPLETED ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY;
+        return ResponseEntity.status(status).body(progress);
+    }
+
+    @GetMapping("/import")
+    public ResponseEntity<TransferProgressDto> getImportProgress() {
+        return transferService.getImportProgress()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,27 @@
+package com.mirakyan.blog.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDto {
+    private String name;
+    private boolean enabled;
+    private long size;
+    private long maxSize;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long evictions;
+    // явные инвалидации при изменении данных (не считаются вытеснениями)
+    private long invalidations;
+    // только для кэшей, ограниченных по объёму (maxSize тогда тоже в байтах)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long residentBytes;
+}
@@ -0,0 +1,24 @@
+package com.mirakyan.blog.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Пакетное добавление комментариев к одному посту; postId элементов заменяется id из пути, как и в одиночном запросе
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentsBatchDto {
+    public static final int MAX_SIZE = 1000;
+
+    @NotEmpty(message = "comments не должен быть пустым")
+    @Size(max = MAX_SIZE, message = "не больше " + MAX_SIZE + " комментариев за запрос")
+    private List<@Valid CommentDto> comments;
+}
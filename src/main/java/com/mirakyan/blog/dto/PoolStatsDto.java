@@ -0,0 +1,29 @@
+package com.mirakyan.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PoolStatsDto {
+    private String poolName;
+    private int active;
+    private int idle;
+    private int total;
+    private int waiting;
+    private int maxSize;
+    private int minIdle;
+    private long acquireCount;
+    private long acquireFailures;
+    private double acquireP50Ms;
+    private double acquireP99Ms;
+    private double acquireMaxMs;
+    // верхняя граница бакета (мс) -> количество получений соединения, только непустые бакеты
+    private Map<String, Long> acquireHistogram;
+}
@@ -0,0 +1,24 @@
+package com.mirakyan.blog.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Пакетное создание постов: все элементы проверяются разом, ошибки приходят одним ответом (posts[i].поле)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostsBatchDto {
+    public static final int MAX_SIZE = 1000;
+
+    @NotEmpty(message = "posts не должен быть пустым")
+    @Size(max = MAX_SIZE, message = "не больше " + MAX_SIZE + " постов за запрос")
+    private List<@Valid PostDto> posts;
+}
@@ -1,6 +1,7 @@
 package com.mirakyan.blog.dto;
 
-import com.mirakyan.blog.dto.PostDto;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,5 +17,14 @@ public class PostsResponseDto {
     private List<PostDto> posts;
     private boolean hasPrev;
     private boolean hasNext;
-    private int lastPage;
+    // null в режиме курсора: общее количество страниц не считается
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer lastPage;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String prevCursor;
+    // Валидатор страницы для If-None-Match; считается один раз при сборке (и кэшируется вместе со страницей)
+    @JsonIgnore
+    private String etag;
 }
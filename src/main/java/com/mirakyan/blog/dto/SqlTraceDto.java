@@ -0,0 +1,43 @@
+package com.mirakyan.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SqlTraceDto {
+    private String requestId;
+    private String method;
+    private String uri;
+    private int status;
+    private String startedAt;
+    private double durationMs;
+    private double sqlMs;
+    private int connectionAcquires;
+    private double connectionAcquireMs;
+    private int statementCount;
+    // выражения сверх sql.trace.max-statements: учтены в sqlMs и statementCount, но не перечислены
+    private int droppedStatements;
+    private List<Statement> statements;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Statement {
+        private String sql;
+        // имена и типы параметров без значений, например "id:Long, tags:List[3]"
+        private String parameters;
+        // смещение начала выражения от начала запроса
+        private double offsetMs;
+        private double durationMs;
+        private long rows;
+        private boolean failed;
+    }
+}
@@ -0,0 +1,28 @@
+package com.mirakyan.blog.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransferProgressDto {
+    public enum State {RUNNING, COMPLETED, FAILED}
+
+    private State state;
+    private long postsImported;
+    private long commentsImported;
+    // записи с id не больше afterPostId/afterCommentId (уже загруженные прошлым запуском)
+    private long skipped;
+    // последние зафиксированные id: с ними импорт можно продолжить после сбоя
+    private long lastPostId;
+    private long lastCommentId;
+    private String startedAt;
+    private String finishedAt;
+    private String error;
+}
@@ -0,0 +1,7 @@
+package com.mirakyan.blog.exception;
+
+public class ImportInProgressException extends RuntimeException {
+    public ImportInProgressException() {
+        super("Импорт уже выполняется");
+    }
+}
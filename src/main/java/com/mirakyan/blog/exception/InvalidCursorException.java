@@ -0,0 +1,7 @@
+package com.mirakyan.blog.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String cursor) {
+        super(String.format("Некорректный курсор '%s'", cursor));
+    }
+}
@@ -0,0 +1,7 @@
+package com.mirakyan.blog.exception;
+
+public class InvalidImportException extends RuntimeException {
+    public InvalidImportException(long line, String reason) {
+        super(String.format("Некорректная запись импорта в строке %d: %s", line, reason));
+    }
+}
@@ -0,0 +1,119 @@
+package com.mirakyan.blog.image;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mirakyan.blog.dto.CacheStatsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Кэш самых популярных изображений в виде MappedByteBuffer: попадание не открывает файл, не делает stat
+ * и не читает сигнатуру — метаданные и содержимое уже в памяти, вне кучи Java.
+ * <p>
+ * Кэшируются только файлы контентно-адресуемого хранилища: их содержимое по данному пути не меняется, так что
+ * инвалидация не нужна. Допуск по частоте: файл отображается в память только после нескольких обращений за
+ * короткое время, а дальше вытеснение W-TinyLFU по суммарному объёму решает, вытеснит ли он менее популярный.
+ * Память отображения освобождается, когда вытесненный буфер соберёт GC.
+ */
+@Component
+public class HotImageCache {
+
+    private static final Logger log = LoggerFactory.getLogger(HotImageCache.class);
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxFileBytes;
+    private final int admissionHits;
+    // счётчики обращений к ещё не закэшированным файлам
+    private final Cache<Path, AtomicInteger> frequency;
+    private final Cache<Path, ImageFile> mapped;
+
+    public HotImageCache(@Value("${images.hot-cache.enabled:true}") boolean enabled,
+                         @Value("${images.hot-cache.max-bytes:67108864}") long maxBytes,
+                         @Value("${images.hot-cache.max-file-bytes:5242880}") long maxFileBytes,
+                         @Value("${images.hot-cache.admission-hits:3}") int admissionHits) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxFileBytes = maxFileBytes;
+        this.admissionHits = Math.max(1, admissionHits);
+        this.frequency = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.mapped = Caffeine.newBuilder()
+                .maximumWeight(enabled ? maxBytes : 0)
+                .weigher((Path path, ImageFile image) -> (int) Math.min(Integer.MAX_VALUE, image.size()))
+                .recordStats()
+                .build();
+        if (enabled) {
+            log.info("Hot image cache enabled, maxBytes={}, admissionHits={}", maxBytes, this.admissionHits);
+        }
+    }
+
+    /**
+     * Закэшированное изображение или пусто; при промахе вызывающий читает файл сам и передаёт его в {@link #admit}.
+     */
+    public Optional<ImageFile> get(Path path) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(mapped.getIfPresent(path));
+    }
+
+    /**
+     * Засчитывает промах по файлу и, если он стал горячим, отображает его в память.
+     *
+     * @return описание с содержимым в памяти или исходное {@code image}
+     */
+    public ImageFile admit(ImageFile image) {
+        if (!enabled || image.size() > maxFileBytes || image.size() == 0) {
+            return image;
+        }
+        int hits = frequency.get(image.path(), p -> new AtomicInteger()).incrementAndGet();
+        if (hits < admissionHits) {
+            return image;
+        }
+        frequency.invalidate(image.path());
+        try (FileChannel channel = FileChannel.open(image.path(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, image.size());
+            ImageFile hot = new ImageFile(image.path(), image.size(), image.lastModified(), image.contentType(), image.etag(), buffer);
+            mapped.put(image.path(), hot);
+            return hot;
+        } catch (IOException e) {
+            log.debug("Failed to map image {}: {}", image.path(), e.getMessage());
+            return image;
+        }
+    }
+
+    public CacheStatsDto stats() {
+        // досчитать отложенные записи, иначе объём может отставать
+        mapped.cleanUp();
+        CacheStats stats = mapped.stats();
+        long resident = mapped.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+        return CacheStatsDto.builder()
+                .name("hot-images")
+                .enabled(enabled)
+                .size(mapped.estimatedSize())
+                .maxSize(maxBytes)
+                .hits(stats.hitCount())
+                .misses(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictions(stats.evictionCount())
+                .residentBytes(resident)
+                .build();
+    }
+}
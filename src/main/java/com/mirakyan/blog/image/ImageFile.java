@@ -0,0 +1,16 @@
+package com.mirakyan.blog.image;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Файл изображения на диске с тем, что нужно для отдачи по HTTP: тип содержимого по сигнатуре и валидаторы кэша.
+ * {@code content} — отображённое в память содержимое, если изображение лежит в {@link HotImageCache}, иначе null.
+ */
+public record ImageFile(Path path, long size, Instant lastModified, String contentType, String etag, ByteBuffer content) {
+
+    public ImageFile(Path path, long size, Instant lastModified, String contentType, String etag) {
+        this(path, size, lastModified, contentType, etag, null);
+    }
+}
@@ -0,0 +1,253 @@
+package com.mirakyan.blog.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Контентно-адресуемое хранилище изображений: файл лежит по пути {@code ab/cd/<sha256>} относительно images.dir,
+ * одинаковые изображения хранятся один раз, а в каждом каталоге не больше нескольких тысяч файлов.
+ * <p>
+ * Загрузка пишется потоком во временный файл с подсчётом хэша и затем атомарно переносится на место, так что
+ * читатели никогда не видят недописанный файл. В posts.image_path хранится ключ {@code ab/cd/<sha256>}.
+ * Фоновая сборка мусора удаляет файлы (вместе с их уменьшенными копиями), на которые не ссылается ни один пост,
+ * но только старше grace-периода — чтобы не удалить файл, ссылка на который ещё не закоммичена.
+ */
+@Component
+public class ImageStore implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageStore.class);
+
+    private static final String TMP_DIR = "tmp";
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}");
+    private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+    private static final int GC_BATCH_SIZE = 500;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final Path root;
+    private final long gcIntervalMs;
+    private final Duration gcGrace;
+    private ScheduledExecutorService scheduler;
+
+    public ImageStore(NamedParameterJdbcTemplate jdbc,
+                      @Value("${images.dir:images}") String dir,
+                      @Value("${images.gc.interval-ms:3600000}") long gcIntervalMs,
+                      @Value("${images.gc.grace-seconds:3600}") long gcGraceSeconds) {
+        this.jdbc = jdbc;
+        this.root = Paths.get(dir).toAbsolutePath();
+        this.gcIntervalMs = gcIntervalMs;
+        this.gcGrace = Duration.ofSeconds(gcGraceSeconds);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (gcIntervalMs <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "images-gc");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::collectGarbageQuietly, gcIntervalMs, gcIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Image store at {}, gcIntervalMs={}, gcGrace={}", root, gcIntervalMs, gcGrace);
+    }
+
+    /**
+     * Сохраняет поток и возвращает ключ вида {@code ab/cd/<sha256>}.
+     */
+    public String store(InputStream in) throws IOException {
+        Path tmpDir = Files.createDirectories(root.resolve(TMP_DIR));
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), digest)) {
+                in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String key = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+            Path target = root.resolve(key);
+            if (Files.exists(target)) {
+                // Уже есть: продлеваем жизнь, чтобы GC не удалил файл до коммита новой ссылки
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                return key;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // параллельная загрузка того же содержимого успела раньше
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            }
+            return key;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Путь к файлу по значению posts.image_path: ключу хранилища или (для старых записей) абсолютному пути.
+     */
+    public Path resolve(String imagePath) {
+        return isKey(imagePath) ? root.resolve(imagePath) : Paths.get(imagePath);
+    }
+
+    /**
+     * Путь уменьшенной копии изображения хранилища (см. {@link ImageVariants}).
+     */
+    public Path variantPath(String key, int size) {
+        return root.resolve(key + "-" + size);
+    }
+
+    public static boolean isKey(String imagePath) {
+        return imagePath != null && KEY.matcher(imagePath).matches();
+    }
+
+    /**
+     * Удаляет файлы хранилища старше grace-периода, на которые нет ссылок из posts.image_path,
+     * и брошенные временные файлы.
+     *
+     * @return количество удалённых файлов
+     */
+    public int collectGarbage() throws IOException {
+        Instant threshold = Instant.now().minus(gcGrace);
+        int deleted = 0;
+        List<String> candidates = new ArrayList<>();
+        for (Path first : shardDirs(root)) {
+            for (Path second : shardDirs(first)) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(second)) {
+                    for (Path file : files) {
+                        String key = root.relativize(file).toString().replace('\\', '/');
+                        if (isKey(key) && isOlderThan(file, threshold)) {
+                            candidates.add(key);
+                        } else if (key.endsWith(".part") && isOlderThan(file, threshold) && Files.deleteIfExists(file)) {
+                            // недописанный вариант после падения процесса
+                            deleted++;
+                        }
+                        if (candidates.size() >= GC_BATCH_SIZE) {
+                            deleted += deleteUnreferenced(candidates, threshold);
+                            candidates.clear();
+                        }
+                    }
+                }
+            }
+        }
+        deleted += deleteUnreferenced(candidates, threshold);
+
+        Path tmpDir = root.resolve(TMP_DIR);
+        if (Files.isDirectory(tmpDir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(tmpDir)) {
+                for (Path file : files) {
+                    if (isOlderThan(file, threshold) && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                }
+            }
+        }
+        if (deleted > 0) {
+            log.info("Image store GC removed {} files", deleted);
+        }
+        return deleted;
+    }
+
+    private int deleteUnreferenced(List<String> keys, Instant threshold) throws IOException {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        Set<String> referenced = new HashSet<>(jdbc.queryForList(
+                "SELECT image_path FROM posts WHERE image_path IN (:keys)", Map.of("keys", keys), String.class));
+        int deleted = 0;
+        for (String key : keys) {
+            // Повторная загрузка того же файла после листинга обновляет mtime и может успеть закоммитить ссылку
+            // до запроса выше — такой файл снова моложе порога и остаётся
+            if (!referenced.contains(key) && isOlderThan(root.resolve(key), threshold)
+                    && Files.deleteIfExists(root.resolve(key))) {
+                deleted++;
+                deleteVariants(root.resolve(key));
+            }
+        }
+        return deleted;
+    }
+
+    private static void deleteVariants(Path original) throws IOException {
+        try (DirectoryStream<Path> variants = Files.newDirectoryStream(original.getParent(), original.getFileName() + "-*")) {
+            for (Path variant : variants) {
+                Files.deleteIfExists(variant);
+            }
+        }
+    }
+
+    private static List<Path> shardDirs(Path dir) throws IOException {
+        List<Path> result = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return result;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir,
+                p -> Files.isDirectory(p) && SHARD.matcher(p.getFileName().toString()).matches())) {
+            entries.forEach(result::add);
+        }
+        return result;
+    }
+
+    private static boolean isOlderThan(Path file, Instant threshold) throws IOException {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(threshold);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private void collectGarbageQuietly() {
+        try {
+            collectGarbage();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Image store GC failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.mirakyan.blog.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Определение типа изображения по сигнатуре (magic bytes), а не по расширению, которое присылает клиент.
+ */
+public final class ImageTypeDetector {
+
+    public static final String OCTET_STREAM = "application/octet-stream";
+
+    private static final int HEADER_SIZE = 16;
+
+    private ImageTypeDetector() {
+    }
+
+    public static String detect(Path path) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int read;
+        try (InputStream in = Files.newInputStream(path)) {
+            read = in.readNBytes(header, 0, HEADER_SIZE);
+        }
+        return detect(header, read);
+    }
+
+    public static String detect(byte[] header, int length) {
+        if (startsWith(header, length, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, length, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(header, length, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(header, length, 'R', 'I', 'F', 'F') && length >= 12
+                && new String(header, 8, 4, StandardCharsets.US_ASCII).equals("WEBP")) {
+            return "image/webp";
+        }
+        if (startsWith(header, length, 'B', 'M')) {
+            return "image/bmp";
+        }
+        return OCTET_STREAM;
+    }
+
+    private static boolean startsWith(byte[] header, int length, int... signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((header[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
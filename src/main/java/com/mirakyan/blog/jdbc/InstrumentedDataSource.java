@@ -0,0 +1,155 @@
+package com.mirakyan.blog.jdbc;
+
+import com.mirakyan.blog.dto.PoolStatsDto;
+import com.mirakyan.blog.metrics.LatencyHistogram;
+import com.mirakyan.blog.metrics.PrometheusWriter;
+import com.mirakyan.blog.metrics.SqlTrace;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Обёртка над пулом HikariCP: замеряет время получения соединения (в том числе для SQL-трассы текущего запроса)
+ * и отдаёт живую статистику пула.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(InstrumentedDataSource.class);
+
+    private final HikariDataSource pool;
+    private final LatencyHistogram acquireTime = new LatencyHistogram();
+    private final LongAdder acquireFailures = new LongAdder();
+
+    public InstrumentedDataSource(HikariDataSource pool) {
+        super(pool);
+        this.pool = pool;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = super.getConnection();
+            recordAcquire(System.nanoTime() - start);
+            return connection;
+        } catch (SQLException e) {
+            acquireFailures.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = super.getConnection(username, password);
+            recordAcquire(System.nanoTime() - start);
+            return connection;
+        } catch (SQLException e) {
+            acquireFailures.increment();
+            throw e;
+        }
+    }
+
+    private void recordAcquire(long nanos) {
+        acquireTime.recordNanos(nanos);
+        // время ожидания пула видно и в SQL-трассе запроса, рядом с его выражениями
+        SqlTrace trace = SqlTrace.current();
+        if (trace != null) {
+            trace.connectionAcquired(nanos);
+        }
+    }
+
+    /**
+     * Прогрев: одновременно занимаем {@code count} соединений, чтобы пул открыл их до первого запроса.
+     */
+    public void warmUp(int count) {
+        List<Connection> borrowed = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                borrowed.add(pool.getConnection());
+            }
+            log.info("Connection pool '{}' warmed up with {} connections", pool.getPoolName(), borrowed.size());
+        } catch (SQLException e) {
+            log.warn("Connection pool warm-up stopped after {} connections: {}", borrowed.size(), e.getMessage());
+        } finally {
+            for (Connection connection : borrowed) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                    // соединение просто вернётся в пул или будет выброшено им
+                }
+            }
+        }
+    }
+
+    public LatencyHistogram getAcquireTime() {
+        return acquireTime;
+    }
+
+    public PoolStatsDto stats() {
+        HikariPoolMXBean mx = pool.getHikariPoolMXBean();
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        long[] counts = acquireTime.snapshotCounts();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                histogram.put(formatMs(LatencyHistogram.upperBoundMicros(i)), counts[i]);
+            }
+        }
+        return PoolStatsDto.builder()
+                .poolName(pool.getPoolName())
+                .active(mx == null ? 0 : mx.getActiveConnections())
+                .idle(mx == null ? 0 : mx.getIdleConnections())
+                .total(mx == null ? 0 : mx.getTotalConnections())
+                .waiting(mx == null ? 0 : mx.getThreadsAwaitingConnection())
+                .maxSize(pool.getMaximumPoolSize())
+                .minIdle(pool.getMinimumIdle())
+                .acquireCount(acquireTime.count())
+                .acquireFailures(acquireFailures.sum())
+                .acquireP50Ms(acquireTime.percentileMicros(50) / 1000.0)
+                .acquireP99Ms(acquireTime.percentileMicros(99) / 1000.0)
+                .acquireMaxMs(acquireTime.maxMicros() / 1000.0)
+                .acquireHistogram(histogram)
+                .build();
+    }
+
+    public void writeTo(PrometheusWriter out) {
+        HikariPoolMXBean mx = pool.getHikariPoolMXBean();
+        String poolLabel = PrometheusWriter.label("pool", String.valueOf(pool.getPoolName()));
+        out.header("blog_db_pool_connections", "gauge", "Connections in the pool by state");
+        out.sample("blog_db_pool_connections", poolLabel + ",state=\"active\"", mx == null ? 0 : mx.getActiveConnections());
+        out.sample("blog_db_pool_connections", poolLabel + ",state=\"idle\"", mx == null ? 0 : mx.getIdleConnections());
+        out.header("blog_db_pool_pending_threads", "gauge", "Threads waiting for a connection");
+        out.sample("blog_db_pool_pending_threads", poolLabel, mx == null ? 0 : mx.getThreadsAwaitingConnection());
+        out.header("blog_db_pool_max_connections", "gauge", "Maximum pool size");
+        out.sample("blog_db_pool_max_connections", poolLabel, pool.getMaximumPoolSize());
+        out.header("blog_db_pool_acquire_duration_seconds", "histogram", "Time to obtain a connection from the pool");
+        out.histogram("blog_db_pool_acquire_duration_seconds", poolLabel, acquireTime);
+        out.header("blog_db_pool_acquire_failures_total", "counter", "Failed attempts to obtain a connection");
+        out.sample("blog_db_pool_acquire_failures_total", poolLabel, acquireFailures.sum());
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private static String formatMs(long micros) {
+        if (micros == Long.MAX_VALUE) {
+            return "+Inf";
+        }
+        return String.format(Locale.ROOT, "%.3f", micros / 1000.0);
+    }
+}
@@ -0,0 +1,145 @@
+package com.mirakyan.blog.jdbc;
+
+import com.mirakyan.blog.metrics.MetricsRegistry;
+import com.mirakyan.blog.metrics.SqlTracer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * NamedParameterJdbcTemplate, который замеряет каждое выражение: время и строки идут в {@link MetricsRegistry},
+ * а само выражение с формой параметров — в SQL-трассу текущего запроса ({@link SqlTracer}).
+ * Переопределены только базовые перегрузки с SqlParameterSource: остальные (с Map, queryForList, queryForMap,
+ * update без KeyHolder) вызывают их же. queryForStream и queryForRowSet не замеряются — время жизни потока
+ * определяет вызывающий код. Выражения в обход шаблона (COPY через API драйвера) замеряются через {@link #time}.
+ */
+public class TimedNamedParameterJdbcTemplate extends NamedParameterJdbcTemplate {
+
+    private final MetricsRegistry metrics;
+    private final SqlTracer tracer;
+
+    public TimedNamedParameterJdbcTemplate(DataSource dataSource, MetricsRegistry metrics, SqlTracer tracer) {
+        this(new JdbcTemplate(dataSource), metrics, tracer);
+    }
+
+    private TimedNamedParameterJdbcTemplate(JdbcTemplate jdbcTemplate, MetricsRegistry metrics, SqlTracer tracer) {
+        super(jdbcTemplate);
+        this.metrics = metrics;
+        this.tracer = tracer;
+    }
+
+    /**
+     * Шаблон на том же DataSource с заданным fetchSize (потоковые выборки); если {@code jdbc} замеряемый,
+     * копия пишет в те же метрики и SQL-трассу.
+     */
+    public static NamedParameterJdbcTemplate withFetchSize(NamedParameterJdbcTemplate jdbc, int fetchSize) {
+        JdbcTemplate streaming = new JdbcTemplate(jdbc.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(fetchSize);
+        if (jdbc instanceof TimedNamedParameterJdbcTemplate timed) {
+            return new TimedNamedParameterJdbcTemplate(streaming, timed.metrics, timed.tracer);
+        }
+        return new NamedParameterJdbcTemplate(streaming);
+    }
+
+    /**
+     * Замеряет выражение, выполненное в обход методов шаблона; для обычного NamedParameterJdbcTemplate просто вызывает.
+     */
+    public static <T> T time(NamedParameterJdbcTemplate jdbc, String sql, Object params, Supplier<T> call,
+                             ToLongFunction<T> rows) {
+        if (jdbc instanceof TimedNamedParameterJdbcTemplate timed) {
+            return timed.timed(sql, params, call, rows);
+        }
+        return call.get();
+    }
+
+    @Override
+    public <T> T execute(String sql, SqlParameterSource paramSource, PreparedStatementCallback<T> action) {
+        return timed(sql, paramSource, () -> super.execute(sql, paramSource, action), result -> 0);
+    }
+
+    @Override
+    public <T> T query(String sql, SqlParameterSource paramSource, ResultSetExtractor<T> rse) {
+        return timed(sql, paramSource, () -> super.query(sql, paramSource, rse), result -> 0);
+    }
+
+    @Override
+    public void query(String sql, SqlParameterSource paramSource, RowCallbackHandler rch) {
+        long[] rows = {0};
+        timed(sql, paramSource, () -> {
+            super.query(sql, paramSource, (RowCallbackHandler) rs -> {
+                rows[0]++;
+                rch.processRow(rs);
+            });
+            return null;
+        }, result -> rows[0]);
+    }
+
+    @Override
+    public <T> List<T> query(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper) {
+        return timed(sql, paramSource, () -> super.query(sql, paramSource, rowMapper), List::size);
+    }
+
+    @Override
+    public <T> T queryForObject(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper) {
+        return timed(sql, paramSource, () -> super.queryForObject(sql, paramSource, rowMapper), result -> 1);
+    }
+
+    @Override
+    public int update(String sql, SqlParameterSource paramSource) {
+        return timed(sql, paramSource, () -> super.update(sql, paramSource), Integer::longValue);
+    }
+
+    @Override
+    public int update(String sql, SqlParameterSource paramSource, KeyHolder generatedKeyHolder, String[] keyColumnNames) {
+        return timed(sql, paramSource, () -> super.update(sql, paramSource, generatedKeyHolder, keyColumnNames),
+                Integer::longValue);
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, SqlParameterSource[] batchArgs) {
+        return timed(sql, batchArgs, () -> super.batchUpdate(sql, batchArgs), TimedNamedParameterJdbcTemplate::affected);
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, SqlParameterSource[] batchArgs, KeyHolder generatedKeyHolder,
+                             String[] keyColumnNames) {
+        return timed(sql, batchArgs, () -> super.batchUpdate(sql, batchArgs, generatedKeyHolder, keyColumnNames),
+                TimedNamedParameterJdbcTemplate::affected);
+    }
+
+    private <T> T timed(String sql, Object params, Supplier<T> call, ToLongFunction<T> rows) {
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            long nanos = System.nanoTime() - start;
+            long count = rows.applyAsLong(result);
+            metrics.recordStatement(sql, nanos, count, false);
+            tracer.onStatement(sql, params, start, nanos, count, false);
+            return result;
+        } catch (RuntimeException e) {
+            long nanos = System.nanoTime() - start;
+            metrics.recordStatement(sql, nanos, 0, true);
+            tracer.onStatement(sql, params, start, nanos, 0, true);
+            throw e;
+        }
+    }
+
+    // Statement.SUCCESS_NO_INFO (-2) означает, что драйвер не сообщил число строк
+    private static long affected(int[] counts) {
+        long total = 0;
+        for (int count : counts) {
+            total += Math.max(0, count);
+        }
+        return total;
+    }
+}
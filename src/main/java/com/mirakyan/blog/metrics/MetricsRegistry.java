@@ -0,0 +1,143 @@
+package com.mirakyan.blog.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики приложения: задержки HTTP по шаблону маршрута, задержки и строки SQL по тексту выражения, счётчики
+ * обработанных исключений. Запись без блокировок: серия ищется в ConcurrentHashMap (создаётся один раз),
+ * дальше только LongAdder и CAS в {@link LatencyHistogram}.
+ */
+@Component
+public class MetricsRegistry {
+
+    static final String OTHER_STATEMENT = "other";
+
+    record RequestKey(String method, String uri, int status) {
+    }
+
+    record ErrorKey(String exception, int status) {
+    }
+
+    static final class StatementStats {
+        final String label;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder rows = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        StatementStats(String label) {
+            this.label = label;
+        }
+    }
+
+    private final ConcurrentMap<RequestKey, LatencyHistogram> requests = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ErrorKey, LongAdder> errors = new ConcurrentHashMap<>();
+    private final int maxStatements;
+    private final int statementLabelLength;
+
+    public MetricsRegistry(@Value("${metrics.sql.max-statements:500}") int maxStatements,
+                           @Value("${metrics.sql.label-length:120}") int statementLabelLength) {
+        this.maxStatements = maxStatements;
+        this.statementLabelLength = statementLabelLength;
+    }
+
+    public void recordRequest(String method, String uri, int status, long nanos) {
+        RequestKey key = new RequestKey(method, uri, status);
+        LatencyHistogram histogram = requests.get(key);
+        if (histogram == null) {
+            histogram = requests.computeIfAbsent(key, k -> new LatencyHistogram());
+        }
+        histogram.recordNanos(nanos);
+    }
+
+    /**
+     * @param rows число прочитанных или изменённых строк, 0 если драйвер его не сообщает
+     */
+    public void recordStatement(String sql, long nanos, long rows, boolean failed) {
+        StatementStats stats = statement(sql);
+        stats.latency.recordNanos(nanos);
+        if (rows > 0) {
+            stats.rows.add(rows);
+        }
+        if (failed) {
+            stats.errors.increment();
+        }
+    }
+
+    public void recordException(Throwable ex, int status) {
+        ErrorKey key = new ErrorKey(ex.getClass().getSimpleName(), status);
+        LongAdder counter = errors.get(key);
+        if (counter == null) {
+            counter = errors.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    public void writeTo(PrometheusWriter out) {
+        out.header("blog_http_request_duration_seconds", "histogram",
+                "HTTP request latency by route pattern, including async processing");
+        for (Map.Entry<RequestKey, LatencyHistogram> entry : requests.entrySet()) {
+            RequestKey key = entry.getKey();
+            out.histogram("blog_http_request_duration_seconds",
+                    PrometheusWriter.label("method", key.method()) + ","
+                            + PrometheusWriter.label("uri", key.uri()) + ","
+                            + PrometheusWriter.label("status", Integer.toString(key.status())),
+                    entry.getValue());
+        }
+
+        out.header("blog_sql_statement_duration_seconds", "histogram",
+                "SQL statement latency through NamedParameterJdbcTemplate");
+        for (StatementStats stats : statements.values()) {
+            out.histogram("blog_sql_statement_duration_seconds",
+                    PrometheusWriter.label("statement", stats.label), stats.latency);
+        }
+        out.header("blog_sql_statement_rows_total", "counter", "Rows read or affected by SQL statement");
+        for (StatementStats stats : statements.values()) {
+            out.sample("blog_sql_statement_rows_total",
+                    PrometheusWriter.label("statement", stats.label), stats.rows.sum());
+        }
+        out.header("blog_sql_statement_errors_total", "counter", "SQL statements that failed with an exception");
+        for (StatementStats stats : statements.values()) {
+            out.sample("blog_sql_statement_errors_total",
+                    PrometheusWriter.label("statement", stats.label), stats.errors.sum());
+        }
+
+        out.header("blog_exceptions_total", "counter", "Exceptions handled by GlobalExceptionHandler");
+        for (Map.Entry<ErrorKey, LongAdder> entry : errors.entrySet()) {
+            out.sample("blog_exceptions_total",
+                    PrometheusWriter.label("exception", entry.getKey().exception()) + ","
+                            + PrometheusWriter.label("status", Integer.toString(entry.getKey().status())),
+                    entry.getValue().sum());
+        }
+    }
+
+    private StatementStats statement(String sql) {
+        StatementStats stats = statements.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        // Динамический SQL не должен раздувать набор рядов: сверх лимита всё идёт в общий ряд
+        if (statements.size() >= maxStatements) {
+            return statements.computeIfAbsent(OTHER_STATEMENT, k -> new StatementStats(OTHER_STATEMENT));
+        }
+        return statements.computeIfAbsent(sql, k -> new StatementStats(statementLabel(k)));
+    }
+
+    /**
+     * Подпись ряда: SQL в одну строку, обрезанный до {@code statementLabelLength}, плюс хэш полного текста,
+     * чтобы выражения с одинаковым началом не сливались в один ряд.
+     */
+    private String statementLabel(String sql) {
+        String compact = SqlTracer.normalize(sql);
+        if (compact.length() > statementLabelLength) {
+            compact = compact.substring(0, statementLabelLength) + "… #" + Integer.toHexString(sql.hashCode());
+        }
+        return compact;
+    }
+}
@@ -0,0 +1,77 @@
+package com.mirakyan.blog.metrics;
+
+import java.util.Locale;
+
+/**
+ * Сборка ответа в текстовом формате Prometheus (exposition format 0.0.4).
+ * Гистограммы выводятся по фиксированному набору границ, чтобы набор рядов не менялся между опросами.
+ */
+public class PrometheusWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Границы бакетов в секундах: от 0.5 мс до 10 с
+    private static final double[] BUCKETS_SECONDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private final StringBuilder out = new StringBuilder(4096);
+
+    public PrometheusWriter header(String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    /**
+     * Одно значение; {@code labels} — уже собранные пары {@code k="v"} через запятую или пустая строка.
+     */
+    public PrometheusWriter sample(String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(format(value)).append('\n');
+        return this;
+    }
+
+    /**
+     * Ряды {@code _bucket}, {@code _sum} и {@code _count} гистограммы в секундах. Счётчики бакетов точны
+     * до границы бакета {@link LatencyHistogram}.
+     */
+    public PrometheusWriter histogram(String name, String labels, LatencyHistogram histogram) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (double bound : BUCKETS_SECONDS) {
+            long micros = (long) (bound * 1_000_000);
+            sample(name + "_bucket", prefix + "le=\"" + format(bound) + "\"", histogram.countAtOrBelowMicros(micros));
+        }
+        long count = histogram.count();
+        sample(name + "_bucket", prefix + "le=\"+Inf\"", count);
+        sample(name + "_sum", labels, histogram.sumMicros() / 1_000_000.0);
+        sample(name + "_count", labels, count);
+        return this;
+    }
+
+    public static String label(String name, String value) {
+        return name + "=\"" + escape(value) + '"';
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf('\\') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%.6g", value).replaceFirst("\\.?0+(e|$)", "$1");
+    }
+}
@@ -0,0 +1,113 @@
+package com.mirakyan.blog.metrics;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQL-трасса одного HTTP-запроса: выражения в порядке выполнения и время получения соединений.
+ * Привязывается к потоку, который сейчас выполняет запрос (контейнерный или виртуальный для Callable),
+ * как TransactionSynchronizationManager — чтобы до неё дотягивались JDBC-шаблон и пул без передачи параметром.
+ */
+public class SqlTrace {
+
+    private static final ThreadLocal<SqlTrace> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Выражение в трассе. SQL и параметры хранятся как есть: нормализуются только для отчёта о медленном запросе.
+     */
+    record Statement(String sql, Object params, long offsetNanos, long nanos, long rows, boolean failed) {
+    }
+
+    private final String requestId;
+    private final String method;
+    private final String uri;
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final int maxStatements;
+    private final List<Statement> statements = new ArrayList<>();
+    private int droppedStatements;
+    private long sqlNanos;
+    private long slowestNanos;
+    private int connectionAcquires;
+    private long connectionAcquireNanos;
+
+    SqlTrace(String requestId, String method, String uri, int maxStatements) {
+        this.requestId = requestId;
+        this.method = method;
+        this.uri = uri;
+        this.maxStatements = maxStatements;
+    }
+
+    public static SqlTrace current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(SqlTrace trace) {
+        CURRENT.set(trace);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public synchronized void connectionAcquired(long nanos) {
+        connectionAcquires++;
+        connectionAcquireNanos += nanos;
+    }
+
+    synchronized void add(String sql, Object params, long startNanos, long nanos, long rows, boolean failed) {
+        sqlNanos += nanos;
+        slowestNanos = Math.max(slowestNanos, nanos);
+        // массовый импорт может выполнить тысячи выражений: сверх лимита считаем только время
+        if (statements.size() >= maxStatements) {
+            droppedStatements++;
+            return;
+        }
+        statements.add(new Statement(sql, params, startNanos - this.startNanos, nanos, rows, failed));
+    }
+
+    synchronized List<Statement> statements() {
+        return List.copyOf(statements);
+    }
+
+    synchronized int droppedStatements() {
+        return droppedStatements;
+    }
+
+    synchronized long sqlNanos() {
+        return sqlNanos;
+    }
+
+    synchronized long slowestNanos() {
+        return slowestNanos;
+    }
+
+    synchronized int connectionAcquires() {
+        return connectionAcquires;
+    }
+
+    synchronized long connectionAcquireNanos() {
+        return connectionAcquireNanos;
+    }
+}
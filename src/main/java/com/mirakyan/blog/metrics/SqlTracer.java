@@ -0,0 +1,217 @@
+package com.mirakyan.blog.metrics;
+
+import com.mirakyan.blog.dto.SqlTraceDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Журнал медленного SQL. Каждое выражение, выполненное в рамках HTTP-запроса, попадает в его {@link SqlTrace};
+ * выражения дольше {@code sql.trace.slow-statement-ms} пишутся в лог с id запроса, а трассы запросов с медленным
+ * выражением или дольше {@code sql.trace.slow-request-ms} целиком сохраняются в кольцевом буфере последних N.
+ */
+@Component
+public class SqlTracer {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlTracer.class);
+
+    // id из заголовка попадает в ответ и в лог: только короткие безопасные значения, без CR/LF и разметки
+    private static final Pattern REQUEST_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private final boolean enabled;
+    private final long slowStatementNanos;
+    private final long slowRequestNanos;
+    private final int maxStatements;
+    private final AtomicReferenceArray<SqlTraceDto> slowTraces;
+    private final AtomicLong slowTraceCount = new AtomicLong();
+
+    public SqlTracer(@Value("${sql.trace.enabled:true}") boolean enabled,
+                     @Value("${sql.trace.slow-statement-ms:100}") long slowStatementMs,
+                     @Value("${sql.trace.slow-request-ms:500}") long slowRequestMs,
+                     @Value("${sql.trace.buffer-size:100}") int bufferSize,
+                     @Value("${sql.trace.max-statements:500}") int maxStatements) {
+        this.enabled = enabled;
+        this.slowStatementNanos = TimeUnit.MILLISECONDS.toNanos(slowStatementMs);
+        this.slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(slowRequestMs);
+        this.maxStatements = maxStatements;
+        this.slowTraces = new AtomicReferenceArray<>(Math.max(1, bufferSize));
+    }
+
+    /**
+     * Новая трасса запроса; {@code requestId} берётся из заголовка X-Request-Id, если клиент передал допустимое
+     * значение ({@code [A-Za-z0-9._-]{1,64}}), иначе генерируется. Возвращает null, если трассировка выключена.
+     */
+    public SqlTrace start(String requestId, String method, String uri) {
+        if (!enabled) {
+            return null;
+        }
+        String id = isValidRequestId(requestId)
+                ? requestId
+                : Long.toHexString(ThreadLocalRandom.current().nextLong());
+        return new SqlTrace(id, method, uri, maxStatements);
+    }
+
+    static boolean isValidRequestId(String requestId) {
+        return requestId != null && requestId.length() <= 64 && REQUEST_ID.matcher(requestId).matches();
+    }
+
+    /**
+     * Вызывается JDBC-шаблоном после каждого выражения; {@code params} — SqlParameterSource или массив для batch.
+     */
+    public void onStatement(String sql, Object params, long startNanos, long nanos, long rows, boolean failed) {
+        if (!enabled) {
+            return;
+        }
+        SqlTrace trace = SqlTrace.current();
+        if (trace != null) {
+            trace.add(sql, params, startNanos, nanos, rows, failed);
+        }
+        if (nanos >= slowStatementNanos) {
+            log.warn("Slow SQL [request {}] {} ms, {} rows{}: {} ({})",
+                    trace == null ? "-" : trace.getRequestId(), toMs(nanos), rows, failed ? ", failed" : "",
+                    normalize(sql), parameterShape(params));
+        }
+    }
+
+    /**
+     * Завершение запроса: медленная трасса копируется в кольцевой буфер.
+     */
+    public void finish(SqlTrace trace, int status) {
+        long duration = System.nanoTime() - trace.getStartNanos();
+        if (duration < slowRequestNanos && trace.slowestNanos() < slowStatementNanos) {
+            return;
+        }
+        SqlTraceDto dto = toDto(trace, status, duration);
+        long index = slowTraceCount.getAndIncrement();
+        slowTraces.set((int) (index % slowTraces.length()), dto);
+        if (duration >= slowRequestNanos) {
+            log.warn("Slow request [request {}] {} {} -> {} in {} ms: {} statements, {} ms in SQL, {} ms acquiring connections",
+                    dto.getRequestId(), dto.getMethod(), dto.getUri(), status, dto.getDurationMs(),
+                    dto.getStatementCount(), dto.getSqlMs(), dto.getConnectionAcquireMs());
+        }
+    }
+
+    /**
+     * Последние медленные трассы, от новых к старым.
+     */
+    public List<SqlTraceDto> recentSlowTraces(int limit) {
+        long last = slowTraceCount.get();
+        int size = slowTraces.length();
+        List<SqlTraceDto> result = new ArrayList<>(Math.min(limit, size));
+        for (long i = last - 1; i >= 0 && i >= last - size && result.size() < limit; i--) {
+            SqlTraceDto dto = slowTraces.get((int) (i % size));
+            if (dto != null) {
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+
+    private static SqlTraceDto toDto(SqlTrace trace, int status, long duration) {
+        List<SqlTrace.Statement> statements = trace.statements();
+        List<SqlTraceDto.Statement> items = new ArrayList<>(statements.size());
+        for (SqlTrace.Statement s : statements) {
+            items.add(SqlTraceDto.Statement.builder()
+                    .sql(normalize(s.sql()))
+                    .parameters(parameterShape(s.params()))
+                    .offsetMs(toMs(s.offsetNanos()))
+                    .durationMs(toMs(s.nanos()))
+                    .rows(s.rows())
+                    .failed(s.failed())
+                    .build());
+        }
+        return SqlTraceDto.builder()
+                .requestId(trace.getRequestId())
+                .method(trace.getMethod())
+                .uri(trace.getUri())
+                .status(status)
+                .startedAt(trace.getStartedAt().toString())
+                .durationMs(toMs(duration))
+                .sqlMs(toMs(trace.sqlNanos()))
+                .connectionAcquires(trace.connectionAcquires())
+                .connectionAcquireMs(toMs(trace.connectionAcquireNanos()))
+                .statementCount(statements.size() + trace.droppedStatements())
+                .droppedStatements(trace.droppedStatements())
+                .statements(items)
+                .build();
+    }
+
+    /**
+     * SQL в одну строку: переводы строк и повторные пробелы из текстовых блоков репозиториев схлопываются.
+     */
+    public static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        boolean space = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = out.length() > 0;
+            } else {
+                if (space) {
+                    out.append(' ');
+                    space = false;
+                }
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Форма параметров без значений: имена и типы, размер коллекций, для batch — форма первой строки и число строк.
+     */
+    static String parameterShape(Object params) {
+        if (params instanceof SqlParameterSource[] batch) {
+            return batch.length == 0 ? "batch[0]" : parameterShape(batch[0]) + " x " + batch.length;
+        }
+        if (!(params instanceof SqlParameterSource source)) {
+            return "";
+        }
+        String[] names = source.getParameterNames();
+        if (names == null) {
+            return "?";
+        }
+        StringBuilder shape = new StringBuilder();
+        for (String name : names) {
+            if (!shape.isEmpty()) {
+                shape.append(", ");
+            }
+            shape.append(name).append(':').append(valueShape(source.getValue(name)));
+        }
+        return shape.toString();
+    }
+
+    private static String valueShape(Object value) {
+        if (value instanceof SqlParameterValue typed) {
+            return valueShape(typed.getValue());
+        }
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Collection<?> collection) {
+            return "List[" + collection.size() + "]";
+        }
+        if (value.getClass().isArray()) {
+            return value.getClass().getComponentType().getSimpleName() + "[" + Array.getLength(value) + "]";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    // миллисекунды с точностью до микросекунды
+    private static double toMs(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -0,0 +1,14 @@
+package com.mirakyan.blog.model;
+
+import java.time.Instant;
+
+/**
+ * Версия списка комментариев поста: количество, сумма id (меняется при удалении+добавлении) и последнее изменение.
+ */
+public record CommentsVersion(long postId, long count, long idSum, Instant lastUpdatedAt) {
+
+    public String etag() {
+        long updated = lastUpdatedAt == null ? 0 : lastUpdatedAt.getEpochSecond() * 1_000_000_000L + lastUpdatedAt.getNano();
+        return "\"c" + postId + "-" + count + "-" + Long.toHexString(idSum) + "-" + Long.toHexString(updated) + "\"";
+    }
+}
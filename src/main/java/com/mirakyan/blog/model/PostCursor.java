@@ -0,0 +1,44 @@
+package com.mirakyan.blog.model;
+
+import com.mirakyan.blog.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Позиция в ленте (created_at, id) для keyset-пагинации. Для клиента курсор — непрозрачная base64url-строка,
+ * в которую помимо ключа зашито направление: следующая страница (после ключа) или предыдущая (до него).
+ */
+public record PostCursor(Instant createdAt, long id, boolean backward) {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public static PostCursor after(Post post) {
+        return new PostCursor(post.getCreatedAt(), post.getId(), false);
+    }
+
+    public static PostCursor before(Post post) {
+        return new PostCursor(post.getCreatedAt(), post.getId(), true);
+    }
+
+    public String encode() {
+        String raw = (backward ? "p" : "n") + ":" + createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static PostCursor decode(String cursor) {
+        try {
+            String raw = new String(DECODER.decode(cursor), StandardCharsets.US_ASCII);
+            String[] parts = raw.split(":");
+            if (parts.length != 4 || !(parts[0].equals("n") || parts[0].equals("p"))) {
+                throw new InvalidCursorException(cursor);
+            }
+            Instant createdAt = Instant.ofEpochSecond(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            return new PostCursor(createdAt, Long.parseLong(parts[3]), parts[0].equals("p"));
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.mirakyan.blog.model;
+
+import java.util.List;
+
+/**
+ * Страница ленты вместе с общим количеством строк, подходящих под фильтр.
+ */
+public record PostPage(List<Post> posts, int total) {
+}
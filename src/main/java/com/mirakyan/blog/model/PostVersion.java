@@ -0,0 +1,21 @@
+package com.mirakyan.blog.model;
+
+import java.time.Instant;
+
+/**
+ * Версия поста для условных GET: всё, от чего зависит ответ, без текста и тегов.
+ * Лайки и комментарии не меняют updated_at, поэтому входят в версию отдельно.
+ */
+public record PostVersion(long id, Instant updatedAt, int likesCount, int commentsCount) {
+
+    public static PostVersion of(Post post) {
+        return new PostVersion(post.getId(), post.getUpdatedAt(),
+                post.getLikesCount() == null ? 0 : post.getLikesCount(),
+                post.getCommentsCount() == null ? 0 : post.getCommentsCount());
+    }
+
+    public String etag() {
+        long updated = updatedAt == null ? 0 : updatedAt.getEpochSecond() * 1_000_000_000L + updatedAt.getNano();
+        return "\"p" + id + "-" + Long.toHexString(updated) + "-" + likesCount + "-" + commentsCount + "\"";
+    }
+}
@@ -1,13 +1,31 @@
 package com.mirakyan.blog.repository;
 
 import com.mirakyan.blog.model.Comment;
+import com.mirakyan.blog.model.CommentCursor;
+import com.mirakyan.blog.model.CommentsVersion;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface CommentRepository {
     List<Comment> findByPostId(Long postId);
+    // Keyset-пагинация по (created_at, id) в хронологическом порядке; cursor == null — с начала
+    List<Comment> findByPostIdAfter(Long postId, CommentCursor cursor, int limit);
+    // Построчная выдача без сборки списка; вызывать внутри транзакции, иначе драйвер PostgreSQL прочитает всё разом
+    void streamByPostId(Long postId, Consumer<Comment> consumer);
     Optional<Comment> findById(Long id);
+    // Агрегат по комментариям поста для ETag списка
+    CommentsVersion findVersionByPostId(Long postId);
     Comment save(Comment comment);
+    // Вставка пачкой одним batchUpdate; id проставляются в переданные объекты
+    List<Comment> insertAll(List<Comment> comments);
     void deleteById(Long id);
+
+    // Выгрузка: комментарии с id > afterId по возрастанию id, построчно из ResultSet (вызывать внутри транзакции)
+    void streamAll(long afterId, Consumer<Comment> consumer);
+    // Загрузка с сохранением id: COPY на PostgreSQL, пачка INSERT на H2
+    void importAll(List<Comment> comments);
+    // Переставляет генератор id за максимальный id после вставки с явными id
+    void restartIdSequence();
 }
@@ -1,22 +1,49 @@
 package com.mirakyan.blog.repository;
 
 import com.mirakyan.blog.model.Post;
+import com.mirakyan.blog.model.PostCursor;
+import com.mirakyan.blog.model.PostPage;
+import com.mirakyan.blog.model.PostVersion;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface PostRepository {
+    // Длина превью в ленте. Вместе с текстом хранится его начало (posts.preview, PREVIEW_LENGTH + 1 символов):
+    // лишний символ показывает, что текст длиннее превью и его нужно обрезать с многоточием
+    int PREVIEW_LENGTH = 128;
+
     Optional<Post> findById(Long id);
+    // Лёгкий запрос версии для ETag без текста и тегов
+    Optional<PostVersion> findVersion(Long id);
     Post save(Post post);
+    // Вставка пачкой одним batchUpdate; id проставляются в переданные объекты
+    List<Post> insertAll(List<Post> posts);
     boolean existsById(Long id);
     void deleteById(Long id);
 
-    // Пагинация + фильтрация по подстроке заголовка и обязательному наличию всех тегов
+    // Пагинация + фильтрация по подстроке заголовка и обязательному наличию всех тегов.
+    // Три метода ленты ниже читают posts.preview вместо text: в Post.text лежит начало текста, такой Post не сохранять
     List<Post> findFiltered(String titleSubstring, List<String> requiredTags, int offset, int limit);
     int countFiltered(String titleSubstring, List<String> requiredTags);
+    // Страница и общее количество одним запросом (COUNT(*) OVER ())
+    PostPage findPageWithTotal(String titleSubstring, List<String> requiredTags, int offset, int limit);
+    // Keyset-пагинация по (created_at, id): строки сразу после курсора (или до него, если cursor.backward()),
+    // всегда в порядке created_at DESC, id DESC; cursor == null — начало ленты
+    List<Post> findFilteredByCursor(String titleSubstring, List<String> requiredTags, PostCursor cursor, int limit);
 
     Optional<Integer> incrementLikesAndGet(Long id);
     void incrementCommentsCount(Long id);
     void decrementCommentsCount(Long id);
+    // Счётчик комментариев сразу на delta — один UPDATE на пост при пакетном добавлении
+    void addCommentsCount(Long id, int delta);
     boolean updateImagePath(Long id, String imagePath);
+
+    // Выгрузка: посты с id > afterId по возрастанию id, построчно из ResultSet (вызывать внутри транзакции)
+    void streamAll(long afterId, Consumer<Post> consumer);
+    // Загрузка с сохранением id: COPY на PostgreSQL, пачка INSERT на H2
+    void importAll(List<Post> posts);
+    // Переставляет генератор id за максимальный id после вставки с явными id
+    void restartIdSequence();
 }
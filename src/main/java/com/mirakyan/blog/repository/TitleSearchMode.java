@@ -0,0 +1,17 @@
+package com.mirakyan.blog.repository;
+
+import java.util.Locale;
+
+/**
+ * Способ поиска по заголовку в ленте.
+ */
+public enum TitleSearchMode {
+    // LOWER(title) LIKE '%...%' — точная подстрока
+    SUBSTRING,
+    // to_tsvector('russian', title) @@ tsquery по индексу idx_posts_title (на H2 — LIKE по каждому слову)
+    FULLTEXT;
+
+    public static TitleSearchMode fromProperty(String value) {
+        return value == null || value.isBlank() ? SUBSTRING : valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
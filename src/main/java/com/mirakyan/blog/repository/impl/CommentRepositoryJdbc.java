@@ -1,7 +1,12 @@
 package com.mirakyan.blog.repository.impl;
 
+import com.mirakyan.blog.jdbc.TimedNamedParameterJdbcTemplate;
 import com.mirakyan.blog.model.Comment;
+import com.mirakyan.blog.model.CommentCursor;
+import com.mirakyan.blog.model.CommentsVersion;
 import com.mirakyan.blog.repository.CommentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -16,40 +21,82 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
 public class CommentRepositoryJdbc implements CommentRepository {
 
     private final NamedParameterJdbcTemplate jdbc;
+    // Отдельный шаблон с fetchSize для потоковой выдачи, чтобы не менять поведение общего
+    private final NamedParameterJdbcTemplate streamingJdbc;
+    private final boolean h2Mode;
 
-    public CommentRepositoryJdbc(NamedParameterJdbcTemplate jdbc) {
+    public CommentRepositoryJdbc(NamedParameterJdbcTemplate jdbc,
+                                 @Value("${comments.stream.fetch-size:500}") int streamFetchSize) {
         this.jdbc = jdbc;
+        this.streamingJdbc = TimedNamedParameterJdbcTemplate.withFetchSize(jdbc, streamFetchSize);
+        this.h2Mode = JdbcDialect.isH2(jdbc.getJdbcTemplate().getDataSource());
     }
 
+    // Столбцы всех выборок комментариев; маппер читает их по номерам в этом порядке
+    private static final String COMMENT_COLUMNS = "id, text, post_id, created_at, updated_at";
+
     private final RowMapper<Comment> mapper = new RowMapper<>() {
         @Override
         public Comment mapRow(ResultSet rs, int rowNum) throws SQLException {
-            Comment.CommentBuilder b = Comment.builder();
-            b.id(rs.getLong("id"));
-            b.text(rs.getString("text"));
-            b.postId(rs.getLong("post_id"));
-            Timestamp c = rs.getTimestamp("created_at");
-            Timestamp u = rs.getTimestamp("updated_at");
-            b.createdAt(c == null ? null : c.toInstant());
-            b.updatedAt(u == null ? null : u.toInstant());
-            return b.build();
+            Timestamp c = rs.getTimestamp(4);
+            Timestamp u = rs.getTimestamp(5);
+            return Comment.builder()
+                    .id(rs.getLong(1))
+                    .text(rs.getString(2))
+                    .postId(rs.getLong(3))
+                    .createdAt(c == null ? null : c.toInstant())
+                    .updatedAt(u == null ? null : u.toInstant())
+                    .build();
         }
     };
 
     @Override
     public List<Comment> findByPostId(Long postId) {
-        String sql = "SELECT id, text, post_id, created_at, updated_at FROM comments WHERE post_id=:postId ORDER BY created_at ASC";
+        String sql = "SELECT " + COMMENT_COLUMNS + " FROM comments WHERE post_id=:postId ORDER BY created_at ASC, id ASC";
         return jdbc.query(sql, Map.of("postId", postId), mapper);
     }
 
+    @Override
+    public List<Comment> findByPostIdAfter(Long postId, CommentCursor cursor, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("postId", postId)
+                .addValue("limit", limit);
+        StringBuilder sql = new StringBuilder("SELECT " + COMMENT_COLUMNS + " FROM comments WHERE post_id=:postId");
+        if (cursor != null) {
+            // Диапазон по created_at идёт по индексу idx_comments_created_at (post_id, created_at),
+            // id лишь отсекает уже выданные строки с тем же created_at
+            sql.append(" AND created_at >= :cursorCreatedAt AND (created_at > :cursorCreatedAt OR id > :cursorId)");
+            params.addValue("cursorCreatedAt", Timestamp.from(cursor.createdAt()));
+            params.addValue("cursorId", cursor.id());
+        }
+        sql.append(" ORDER BY created_at ASC, id ASC LIMIT :limit");
+        return jdbc.query(sql.toString(), params, mapper);
+    }
+
+    @Override
+    public void streamByPostId(Long postId, Consumer<Comment> consumer) {
+        String sql = "SELECT " + COMMENT_COLUMNS + " FROM comments WHERE post_id=:postId ORDER BY created_at ASC, id ASC";
+        streamingJdbc.query(sql, Map.of("postId", postId), (RowCallbackHandler) rs -> consumer.accept(mapper.mapRow(rs, 0)));
+    }
+
+    @Override
+    public CommentsVersion findVersionByPostId(Long postId) {
+        String sql = "SELECT COUNT(*) AS cnt, COALESCE(SUM(id), 0) AS id_sum, MAX(updated_at) AS last_updated FROM comments WHERE post_id=:postId";
+        return jdbc.queryForObject(sql, Map.of("postId", postId), (rs, rowNum) -> {
+            Timestamp last = rs.getTimestamp("last_updated");
+            return new CommentsVersion(postId, rs.getLong("cnt"), rs.getLong("id_sum"), last == null ? null : last.toInstant());
+        });
+    }
+
     @Override
     public Optional<Comment> findById(Long id) {
-        String sql = "SELECT id, text, post_id, created_at, updated_at FROM comments WHERE id=:id";
+        String sql = "SELECT " + COMMENT_COLUMNS + " FROM comments WHERE id=:id";
         List<Comment> list = jdbc.query(sql, Map.of("id", id), mapper);
         return list.stream().findFirst();
     }
@@ -63,21 +110,41 @@ public class CommentRepositoryJdbc implements CommentRepository {
         }
     }
 
+    private static final String INSERT_SQL = "INSERT INTO comments (text, post_id, created_at, updated_at) VALUES (:text, :post_id, :created_at, :updated_at)";
+
     private Comment insert(Comment comment) {
-        String sql = "INSERT INTO comments (text, post_id, created_at, updated_at) VALUES (:text, :post_id, :created_at, :updated_at)";
-        MapSqlParameterSource params = new MapSqlParameterSource();
-        params.addValue("text", comment.getText());
-        params.addValue("post_id", comment.getPostId());
-        params.addValue("created_at", Timestamp.from(comment.getCreatedAt() == null ? Instant.now() : comment.getCreatedAt()));
-        params.addValue("updated_at", Timestamp.from(comment.getUpdatedAt() == null ? Instant.now() : comment.getUpdatedAt()));
         KeyHolder kh = new GeneratedKeyHolder();
-        jdbc.update(sql, params, kh, new String[]{"id"});
+        jdbc.update(INSERT_SQL, insertParams(comment), kh, new String[]{"id"});
         if (kh.getKey() != null) {
             comment.setId(kh.getKey().longValue());
         }
         return comment;
     }
 
+    @Override
+    public List<Comment> insertAll(List<Comment> comments) {
+        if (comments.isEmpty()) {
+            return comments;
+        }
+        MapSqlParameterSource[] batch = comments.stream().map(this::insertParams).toArray(MapSqlParameterSource[]::new);
+        KeyHolder kh = new GeneratedKeyHolder();
+        jdbc.batchUpdate(INSERT_SQL, batch, kh, new String[]{"id"});
+        List<Map<String, Object>> keys = kh.getKeyList();
+        for (int i = 0; i < comments.size() && i < keys.size(); i++) {
+            comments.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+        return comments;
+    }
+
+    private MapSqlParameterSource insertParams(Comment comment) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        params.addValue("text", comment.getText());
+        params.addValue("post_id", comment.getPostId());
+        params.addValue("created_at", Timestamp.from(comment.getCreatedAt() == null ? Instant.now() : comment.getCreatedAt()));
+        params.addValue("updated_at", Timestamp.from(comment.getUpdatedAt() == null ? Instant.now() : comment.getUpdatedAt()));
+        return params;
+    }
+
     private Comment update(Comment comment) {
         String sql = "UPDATE comments SET text=:text, updated_at=:updated_at WHERE id=:id";
         MapSqlParameterSource params = new MapSqlParameterSource();
@@ -92,4 +159,32 @@ public class CommentRepositoryJdbc implements CommentRepository {
     public void deleteById(Long id) {
         jdbc.update("DELETE FROM comments WHERE id=:id", Map.of("id", id));
     }
+
+    @Override
+    public void streamAll(long afterId, Consumer<Comment> consumer) {
+        String sql = "SELECT " + COMMENT_COLUMNS + " FROM comments WHERE id > :afterId ORDER BY id";
+        streamingJdbc.query(sql, Map.of("afterId", afterId), (RowCallbackHandler) rs -> consumer.accept(mapper.mapRow(rs, 0)));
+    }
+
+    @Override
+    public void importAll(List<Comment> comments) {
+        if (comments.isEmpty()) {
+            return;
+        }
+        if (h2Mode) {
+            MapSqlParameterSource[] batch = comments.stream()
+                    .map(comment -> insertParams(comment).addValue("id", comment.getId()))
+                    .toArray(MapSqlParameterSource[]::new);
+            jdbc.batchUpdate("INSERT INTO comments (id, text, post_id, created_at, updated_at) VALUES (:id, :text, :post_id, :created_at, :updated_at)", batch);
+        } else {
+            List<Object[]> rows = comments.stream().map(comment -> new Object[]{
+                    comment.getId(), comment.getText(), comment.getPostId(), comment.getCreatedAt(), comment.getUpdatedAt()}).toList();
+            PgCopy.copyIn(jdbc, "comments", "id, text, post_id, created_at, updated_at", rows);
+        }
+    }
+
+    @Override
+    public void restartIdSequence() {
+        JdbcDialect.restartIdSequence(jdbc, "comments", h2Mode);
+    }
 }
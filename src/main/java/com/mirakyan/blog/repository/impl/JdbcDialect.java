@@ -0,0 +1,66 @@
+package com.mirakyan.blog.repository.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+final class JdbcDialect {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcDialect.class);
+
+    private JdbcDialect() {
+    }
+
+    @FunctionalInterface
+    interface StringArrayReader {
+        String[] read(Array array) throws SQLException;
+    }
+
+    /**
+     * Чтение text[] выбирается один раз по диалекту, а не угадывается на каждой строке: pgjdbc отдаёт String[],
+     * а H2 — Object[] даже для VARCHAR ARRAY, и приведение к String[] падало бы ClassCastException.
+     */
+    static StringArrayReader stringArrayReader(boolean h2) {
+        if (h2) {
+            return array -> {
+                if (array == null) {
+                    return null;
+                }
+                Object[] values = (Object[]) array.getArray();
+                return Arrays.copyOf(values, values.length, String[].class);
+            };
+        }
+        return array -> array == null ? null : (String[]) array.getArray();
+    }
+
+    static boolean isH2(DataSource ds) {
+        try (Connection c = ds.getConnection()) {
+            String product = c.getMetaData().getDatabaseProductName();
+            return product != null && product.toLowerCase(Locale.ROOT).contains("h2");
+        } catch (Exception e) {
+            log.warn("Could not detect DB product name: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Следующий id таблицы — за максимальным существующим (после вставки строк с явными id).
+     */
+    static void restartIdSequence(NamedParameterJdbcTemplate jdbc, String table, boolean h2) {
+        Long next = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table, Map.of(), Long.class);
+        if (h2) {
+            jdbc.update("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next, Map.of());
+        } else {
+            jdbc.queryForObject("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), :next, false)",
+                    Map.of("next", next), Long.class);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.mirakyan.blog.repository.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind буфер лайков: вместо UPDATE на каждый лайк копит дельты по постам в памяти и периодически
+ * сбрасывает их в posts.likes_count пачками UPDATE (одна транзакция на пачку).
+ * <p>
+ * Дельты лежат в ConcurrentHashMap: merge/remove атомарны и блокируют только одну корзину таблицы, так что
+ * лайкеры разных постов не мешают друг другу, а лайкеры одного поста не ждут блокировку строки в БД.
+ * Значение, видимое клиенту, = сохранённое в БД + ещё не сброшенная дельта (eventual consistency в пределах
+ * интервала сброса). Необработанные дельты сбрасываются при остановке контекста.
+ */
+@Component
+public class LikeWriteBehindBuffer implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(LikeWriteBehindBuffer.class);
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final ShardedLikeCounter shardedCounter;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long flushIntervalMs;
+    private final int batchSize;
+
+    // Несброшенная дельта поста: pending ещё копится, inFlight забрана текущим сбросом, но не зафиксирована в БД.
+    // Обе части в одном неизменяемом значении: переходы между ними — один compute, чтение видит согласованную сумму
+    private final ConcurrentHashMap<Long, Delta> deltas = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public LikeWriteBehindBuffer(NamedParameterJdbcTemplate jdbc,
+                                 ShardedLikeCounter shardedCounter,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${likes.write-behind.enabled:true}") boolean enabled,
+                                 @Value("${likes.write-behind.flush-interval-ms:500}") long flushIntervalMs,
+                                 @Value("${likes.write-behind.batch-size:500}") int batchSize) {
+        this.jdbc = jdbc;
+        this.shardedCounter = shardedCounter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.flushIntervalMs = flushIntervalMs;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled || flushIntervalMs <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "likes-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Like write-behind buffer started, flushIntervalMs={}, batchSize={}", flushIntervalMs, batchSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Регистрирует лайк и возвращает ещё не сброшенную в БД дельту поста, включая этот лайк.
+     */
+    public long increment(long postId) {
+        return deltas.merge(postId, new Delta(1, 0), (current, one) -> new Delta(current.pending() + 1, current.inFlight())).total();
+    }
+
+    public long pendingDelta(long postId) {
+        Delta delta = deltas.get(postId);
+        return delta == null ? 0 : delta.total();
+    }
+
+    /**
+     * Сбрасывает накопленные дельты. Ключи сортируются, чтобы параллельные сбросы с разных узлов
+     * брали блокировки строк в одном порядке и не упирались в deadlock.
+     */
+    public synchronized void flush() {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> drained = new TreeMap<>();
+        for (Long postId : deltas.keySet()) {
+            deltas.computeIfPresent(postId, (id, delta) -> {
+                if (delta.pending() == 0) {
+                    return delta;
+                }
+                drained.put(id, delta.pending());
+                return new Delta(0, delta.inFlight() + delta.pending());
+            });
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(drained.entrySet());
+        int written = 0;
+        try {
+            while (written < entries.size()) {
+                List<Map.Entry<Long, Long>> chunk = entries.subList(written, Math.min(written + batchSize, entries.size()));
+                writeBatch(chunk);
+                // Пачка уже в БД: сразу снимаем её с inFlight, иначе до конца сброса она считалась бы дважды
+                chunk.forEach(this::releaseInFlight);
+                written += chunk.size();
+            }
+            log.debug("Flushed likes for {} posts", drained.size());
+        } catch (RuntimeException e) {
+            // Не потеряли: незаписанные дельты возвращаются в pending, следующий сброс повторит попытку
+            entries.subList(written, entries.size()).forEach(entry -> deltas.computeIfPresent(entry.getKey(),
+                    (id, delta) -> new Delta(delta.pending() + entry.getValue(), delta.inFlight() - entry.getValue())));
+            throw e;
+        }
+    }
+
+    private void releaseInFlight(Map.Entry<Long, Long> entry) {
+        long written = entry.getValue();
+        deltas.computeIfPresent(entry.getKey(), (id, delta) -> {
+            Delta rest = new Delta(delta.pending(), delta.inFlight() - written);
+            return rest.pending() == 0 && rest.inFlight() == 0 ? null : rest;
+        });
+    }
+
+    private void writeBatch(List<Map.Entry<Long, Long>> chunk) {
+        if (shardedCounter.isEnabled()) {
+            transactionTemplate.executeWithoutResult(status -> shardedCounter.add(chunk));
+            return;
+        }
+        MapSqlParameterSource[] batch = chunk.stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("id", entry.getKey())
+                        .addValue("delta", entry.getValue()))
+                .toArray(MapSqlParameterSource[]::new);
+        transactionTemplate.executeWithoutResult(status -> jdbc.batchUpdate(
+                "UPDATE posts SET likes_count = likes_count + :delta, updated_at = CURRENT_TIMESTAMP WHERE id = :id", batch));
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Like flush failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushQuietly();
+        if (!deltas.isEmpty()) {
+            log.warn("Like buffer stopped with unflushed deltas for {} posts", deltas.size());
+        }
+    }
+
+    private record Delta(long pending, long inFlight) {
+        long total() {
+            return pending + inFlight;
+        }
+    }
+}
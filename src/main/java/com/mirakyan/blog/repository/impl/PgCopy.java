@@ -0,0 +1,75 @@
+package com.mirakyan.blog.repository.impl;
+
+import com.mirakyan.blog.jdbc.TimedNamedParameterJdbcTemplate;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * COPY ... FROM STDIN (CSV) для массовой загрузки в PostgreSQL: на порядок быстрее пачки INSERT, так как строки идут
+ * одним потоком без разбора и планирования каждого выражения. Выполняется на соединении текущей транзакции.
+ */
+final class PgCopy {
+
+    private PgCopy() {
+    }
+
+    static long copyIn(NamedParameterJdbcTemplate jdbc, String table, String columns, List<Object[]> rows) {
+        StringBuilder csv = new StringBuilder(rows.size() * 256);
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    csv.append(',');
+                }
+                appendField(csv, row[i]);
+            }
+            csv.append('\n');
+        }
+        String sql = "COPY " + table + " (" + columns + ") FROM STDIN WITH (FORMAT csv)";
+        // COPY идёт через API драйвера мимо методов шаблона, поэтому замеряется явно
+        Long copied = TimedNamedParameterJdbcTemplate.time(jdbc, sql, null,
+                () -> jdbc.getJdbcTemplate().execute((ConnectionCallback<Long>) con -> {
+                    try {
+                        return con.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, new StringReader(csv.toString()));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }),
+                result -> result == null ? 0 : result);
+        return copied == null ? 0 : copied;
+    }
+
+    // Пустое поле без кавычек — NULL, любое значение в кавычках — строка (в т.ч. пустая)
+    private static void appendField(StringBuilder csv, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number) {
+            csv.append(value);
+            return;
+        }
+        String text = value instanceof String[] array ? arrayLiteral(array)
+                : value instanceof Instant instant ? instant.toString()
+                : value.toString();
+        csv.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+
+    private static String arrayLiteral(String[] values) {
+        StringBuilder literal = new StringBuilder("{");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                literal.append(',');
+            }
+            literal.append('"')
+                    .append(values[i].replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append('"');
+        }
+        return literal.append('}').toString();
+    }
+}
@@ -1,74 +1,145 @@
 package com.mirakyan.blog.repository.impl;
 
+import com.mirakyan.blog.jdbc.TimedNamedParameterJdbcTemplate;
 import com.mirakyan.blog.model.Post;
+import com.mirakyan.blog.model.PostCursor;
+import com.mirakyan.blog.model.PostPage;
+import com.mirakyan.blog.model.PostVersion;
 import com.mirakyan.blog.repository.PostRepository;
+import com.mirakyan.blog.repository.TitleSearchMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.sql.DataSource;
-import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
 public class PostRepositoryJdbc implements PostRepository {
 
     private static final Logger log = LoggerFactory.getLogger(PostRepositoryJdbc.class);
 
+    // Номера столбцов postColumns/feedColumns: маппер читает по номеру, без поиска столбца по имени на каждой строке
+    private static final int COL_ID = 1;
+    private static final int COL_TITLE = 2;
+    private static final int COL_TEXT = 3;
+    private static final int COL_CREATED_AT = 4;
+    private static final int COL_UPDATED_AT = 5;
+    private static final int COL_LIKES_COUNT = 6;
+    private static final int COL_COMMENTS_COUNT = 7;
+    private static final int COL_IMAGE_PATH = 8;
+    private static final int COL_TAGS = 9;
+    // COUNT(*) OVER () в findPageWithTotal идёт сразу за столбцами ленты
+    private static final int COL_TOTAL_COUNT = 10;
+
+    private static final String TS_CONFIG = "'russian'";
+
     private final NamedParameterJdbcTemplate jdbc;
     private final boolean h2Mode;
+    private final TitleSearchMode titleSearchMode;
+    private final boolean rankByRelevance;
+    // null, если in-process триграммный индекс выключен (на PostgreSQL подстроку ищет pg_trgm)
+    private final TitleTrigramIndex trigramIndex;
+    private final int trigramMaxCandidates;
+    private volatile boolean trigramIndexLoaded;
+    private final LikeWriteBehindBuffer likeBuffer;
+    private final ShardedLikeCounter shardedLikes;
+    private final String likesColumn;
+    private final String postColumns;
+    // Столбцы ленты: вместо text — хранимое превью, длинные тела постов не читаются и не копируются в память
+    private final String feedColumns;
+    private final JdbcDialect.StringArrayReader tagsReader;
+    // Отдельный шаблон с fetchSize для выгрузки, чтобы не менять поведение общего
+    private final NamedParameterJdbcTemplate streamingJdbc;
 
-    public PostRepositoryJdbc(NamedParameterJdbcTemplate jdbc, DataSource dataSource) {
+    public PostRepositoryJdbc(NamedParameterJdbcTemplate jdbc, DataSource dataSource,
+                              LikeWriteBehindBuffer likeBuffer, ShardedLikeCounter shardedLikes,
+                              @Value("${search.title.mode:substring}") String titleSearchMode,
+                              @Value("${search.title.rank-by-relevance:false}") boolean rankByRelevance,
+                              @Value("${search.title.trigram-index:auto}") String trigramIndex,
+                              @Value("${search.title.trigram-index.max-candidates:5000}") int trigramMaxCandidates,
+                              @Value("${posts.stream.fetch-size:500}") int streamFetchSize) {
         this.jdbc = jdbc;
-        this.h2Mode = detectH2(dataSource);
-        log.info("PostRepositoryJdbc initialized, h2Mode={}", h2Mode);
-    }
-
-    private boolean detectH2(DataSource ds) {
-        try (Connection c = ds.getConnection()) {
-            String product = c.getMetaData().getDatabaseProductName();
-            return product != null && product.toLowerCase(Locale.ROOT).contains("h2");
-        } catch (Exception e) {
-            log.warn("Could not detect DB product name: {}", e.getMessage());
-            return false;
-        }
-    }
-
-    private final RowMapper<Post> mapper = (ResultSet rs, int rowNum) -> {
-        Post.PostBuilder b = Post.builder();
-        b.id(rs.getLong("id"));
-        b.title(rs.getString("title"));
-        b.text(rs.getString("text"));
-        Timestamp created = rs.getTimestamp("created_at");
-        Timestamp updated = rs.getTimestamp("updated_at");
-        b.createdAt(created == null ? null : created.toInstant());
-        b.updatedAt(updated == null ? null : updated.toInstant());
-        b.likesCount(rs.getObject("likes_count") == null ? 0 : rs.getInt("likes_count"));
-        b.commentsCount(rs.getObject("comments_count") == null ? 0 : rs.getInt("comments_count"));
-        b.imagePath(rs.getString("image_path"));
-        try {
-            java.sql.Array arr = rs.getArray("tags");
-            if (arr != null) {
-                b.tags((String[]) arr.getArray());
-            }
-        } catch (Exception ignored) {}
-        return b.build();
-    };
+        this.streamingJdbc = TimedNamedParameterJdbcTemplate.withFetchSize(jdbc, streamFetchSize);
+        this.likeBuffer = likeBuffer;
+        this.shardedLikes = shardedLikes;
+        this.likesColumn = shardedLikes.isEnabled() ? ShardedLikeCounter.LIKES_COLUMN : "likes_count";
+        this.postColumns = "id, title, text, created_at, updated_at, " + likesColumn + ", comments_count, image_path, tags";
+        this.feedColumns = "id, title, preview AS text, created_at, updated_at, " + likesColumn + ", comments_count, image_path, tags";
+        this.h2Mode = JdbcDialect.isH2(dataSource);
+        this.tagsReader = JdbcDialect.stringArrayReader(h2Mode);
+        this.titleSearchMode = TitleSearchMode.fromProperty(titleSearchMode);
+        this.rankByRelevance = rankByRelevance;
+        boolean trigramEnabled = "auto".equalsIgnoreCase(trigramIndex) ? h2Mode : Boolean.parseBoolean(trigramIndex);
+        this.trigramIndex = trigramEnabled ? new TitleTrigramIndex() : null;
+        this.trigramMaxCandidates = trigramMaxCandidates;
+        log.info("PostRepositoryJdbc initialized, h2Mode={}, titleSearchMode={}, rankByRelevance={}, trigramIndex={}",
+                h2Mode, this.titleSearchMode, rankByRelevance, trigramEnabled);
+    }
+
+    // Пакетный доступ — для бенчмарка маппинга в src/bench
+    final RowMapper<Post> mapper = this::mapPost;
+
+    private Post mapPost(ResultSet rs, int rowNum) throws SQLException {
+        long id = rs.getLong(COL_ID);
+        Timestamp created = rs.getTimestamp(COL_CREATED_AT);
+        Timestamp updated = rs.getTimestamp(COL_UPDATED_AT);
+        return Post.builder()
+                .id(id)
+                .title(rs.getString(COL_TITLE))
+                .text(rs.getString(COL_TEXT))
+                .createdAt(created == null ? null : created.toInstant())
+                .updatedAt(updated == null ? null : updated.toInstant())
+                // getInt возвращает 0 для NULL; к сохранённому значению добавляются ещё не сброшенные лайки
+                .likesCount((int) (rs.getInt(COL_LIKES_COUNT) + pendingLikes(id)))
+                .commentsCount(rs.getInt(COL_COMMENTS_COUNT))
+                .imagePath(rs.getString(COL_IMAGE_PATH))
+                .tags(tagsReader.read(rs.getArray(COL_TAGS)))
+                .build();
+    }
+
+    private long pendingLikes(long postId) {
+        return likeBuffer.pendingDelta(postId);
+    }
+
+    @Override
+    public Optional<PostVersion> findVersion(Long id) {
+        String sql = "SELECT id, updated_at, " + likesColumn + ", comments_count FROM posts WHERE id=:id";
+        List<PostVersion> list = jdbc.query(sql, Map.of("id", id), (rs, rowNum) -> {
+            // updated_at может быть NULL у старых и импортированных строк — как и в mapPost, версия без времени
+            Timestamp updated = rs.getTimestamp("updated_at");
+            return new PostVersion(
+                    rs.getLong("id"),
+                    updated == null ? null : updated.toInstant(),
+                    (int) (rs.getLong("likes_count") + pendingLikes(rs.getLong("id"))),
+                    rs.getInt("comments_count"));
+        });
+        return list.stream().findFirst();
+    }
 
     @Override
     public Optional<Post> findById(Long id) {
-        String sql = "SELECT id, title, text, created_at, updated_at, likes_count, comments_count, image_path, tags FROM posts WHERE id=:id";
+        String sql = "SELECT " + postColumns + " FROM posts WHERE id=:id";
         List<Post> list = jdbc.query(sql, Map.of("id", id), mapper);
         return list.stream().findFirst();
     }
@@ -82,39 +153,82 @@ public class PostRepositoryJdbc implements PostRepository {
         }
     }
 
+    private static final String INSERT_SQL = "INSERT INTO posts (title, text, preview, created_at, updated_at, likes_count, comments_count, image_path, tags) " +
+            "VALUES (:title, :text, :preview, :created_at, :updated_at, :likes_count, :comments_count, :image_path, :tags)";
+
     private Post insert(Post post) {
-        String sql = "INSERT INTO posts (title, text, created_at, updated_at, likes_count, comments_count, image_path, tags) " +
-                "VALUES (:title, :text, :created_at, :updated_at, :likes_count, :comments_count, :image_path, :tags)";
+        KeyHolder kh = new GeneratedKeyHolder();
+        jdbc.update(INSERT_SQL, insertParams(post), kh, new String[]{"id"});
+        Number key = kh.getKey();
+        if (key != null) {
+            post.setId(key.longValue());
+            indexInserted(post.getId(), post.getTitle());
+        }
+        return post;
+    }
+
+    @Override
+    public List<Post> insertAll(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return posts;
+        }
+        MapSqlParameterSource[] batch = posts.stream().map(this::insertParams).toArray(MapSqlParameterSource[]::new);
+        KeyHolder kh = new GeneratedKeyHolder();
+        // Одна пачка INSERT вместо запроса на пост; сгенерированные ключи приходят в порядке строк пачки
+        jdbc.batchUpdate(INSERT_SQL, batch, kh, new String[]{"id"});
+        List<Map<String, Object>> keys = kh.getKeyList();
+        for (int i = 0; i < posts.size() && i < keys.size(); i++) {
+            Post post = posts.get(i);
+            post.setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            indexInserted(post.getId(), post.getTitle());
+        }
+        return posts;
+    }
+
+    private MapSqlParameterSource insertParams(Post post) {
         MapSqlParameterSource params = new MapSqlParameterSource();
         params.addValue("title", post.getTitle());
         params.addValue("text", post.getText());
+        params.addValue("preview", preview(post.getText()));
         params.addValue("created_at", Timestamp.from(Optional.ofNullable(post.getCreatedAt()).orElse(Instant.now())));
         params.addValue("updated_at", Timestamp.from(Optional.ofNullable(post.getUpdatedAt()).orElse(Instant.now())));
         params.addValue("likes_count", Optional.ofNullable(post.getLikesCount()).orElse(0));
         params.addValue("comments_count", Optional.ofNullable(post.getCommentsCount()).orElse(0));
         params.addValue("image_path", post.getImagePath());
         params.addValue("tags", post.getTags());
-        KeyHolder kh = new GeneratedKeyHolder();
-        jdbc.update(sql, params, kh, new String[]{"id"});
-        Number key = kh.getKey();
-        if (key != null) {
-            post.setId(key.longValue());
+        return params;
+    }
+
+    /**
+     * Начало текста для ленты: PREVIEW_LENGTH + 1 символов, лишний показывает сервису, что нужно многоточие.
+     * Суррогатная пара не разрезается — половина символа не записалась бы в UTF-8; если на границе начинается
+     * пара, последним символом идёт «…»: сервис его отрежет, а признак «текст длиннее превью» сохранится.
+     */
+    static String preview(String text) {
+        int length = PREVIEW_LENGTH + 1;
+        if (text == null || text.length() <= length) {
+            return text;
         }
-        return post;
+        if (Character.isHighSurrogate(text.charAt(length - 1))) {
+            return text.substring(0, length - 1) + "…";
+        }
+        return text.substring(0, length);
     }
 
+    // Счётчики лайков и комментариев не пишутся: они меняются только своими инкрементами, а в прочитанном Post
+    // likesCount уже включает несброшенные дельты буфера и шарды — запись его обратно посчитала бы их дважды
     private Post update(Post post) {
-        String sql = "UPDATE posts SET title=:title, text=:text, updated_at=:updated_at, likes_count=:likes_count, comments_count=:comments_count, image_path=:image_path, tags=:tags WHERE id=:id";
+        String sql = "UPDATE posts SET title=:title, text=:text, preview=:preview, updated_at=:updated_at, image_path=:image_path, tags=:tags WHERE id=:id";
         MapSqlParameterSource params = new MapSqlParameterSource();
         params.addValue("id", post.getId());
         params.addValue("title", post.getTitle());
         params.addValue("text", post.getText());
+        params.addValue("preview", preview(post.getText()));
         params.addValue("updated_at", Timestamp.from(Optional.ofNullable(post.getUpdatedAt()).orElse(Instant.now())));
-        params.addValue("likes_count", Optional.ofNullable(post.getLikesCount()).orElse(0));
-        params.addValue("comments_count", Optional.ofNullable(post.getCommentsCount()).orElse(0));
         params.addValue("image_path", post.getImagePath());
         params.addValue("tags", post.getTags());
         jdbc.update(sql, params);
+        indexUpdated(post.getId(), post.getTitle());
         return post;
     }
 
@@ -128,6 +242,75 @@ public class PostRepositoryJdbc implements PostRepository {
     @Override
     public void deleteById(Long id) {
         jdbc.update("DELETE FROM posts WHERE id=:id", Map.of("id", id));
+        indexDeleted(id);
+    }
+
+    // Индекс должен оставаться надмножеством видимых заголовков: добавляем сразу, убираем после фиксации транзакции
+    private void indexInserted(long id, String title) {
+        if (trigramIndex == null) return;
+        trigramIndex.add(id, title);
+        afterCompletion(committed -> {
+            if (!committed) trigramIndex.remove(id);
+        });
+    }
+
+    private void indexUpdated(long id, String title) {
+        if (trigramIndex == null) return;
+        trigramIndex.add(id, title);
+        afterCompletion(committed -> {
+            if (committed) trigramIndex.retainOnly(id, title);
+        });
+    }
+
+    private void indexDeleted(long id) {
+        if (trigramIndex == null) return;
+        afterCompletion(committed -> {
+            if (committed) trigramIndex.remove(id);
+        });
+    }
+
+    private void afterCompletion(Consumer<Boolean> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private void ensureTrigramIndexLoaded() {
+        if (trigramIndexLoaded) return;
+        synchronized (trigramIndex) {
+            if (trigramIndexLoaded) return;
+            jdbc.query("SELECT id, title FROM posts", Map.of(), rs -> {
+                trigramIndex.add(rs.getLong("id"), rs.getString("title"));
+            });
+            trigramIndexLoaded = true;
+            log.info("Title trigram index loaded: {} posts", trigramIndex.size());
+        }
+    }
+
+    // Ограничение по кандидатам из триграммного индекса; без индекса или при слишком широком запросе — обычный LIKE
+    private void appendTrigramCandidates(StringBuilder sql, List<String> needles, MapSqlParameterSource params) {
+        if (trigramIndex == null) return;
+        ensureTrigramIndexLoaded();
+        Set<Long> candidates = trigramIndex.candidates(needles, trigramMaxCandidates);
+        if (candidates == null) return;
+        if (candidates.isEmpty()) {
+            sql.append(" AND 1=0");
+            return;
+        }
+        sql.append(" AND id IN (:trigramCandidates)");
+        params.addValue("trigramCandidates", candidates);
+    }
+
+    // Пользовательские % и _ ищутся буквально
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     private void appendTagConditions(StringBuilder sql, List<String> requiredTags, MapSqlParameterSource params) {
@@ -145,16 +328,80 @@ public class PostRepositoryJdbc implements PostRepository {
         }
     }
 
+    private void appendTitleCondition(StringBuilder sql, String titleSubstring, MapSqlParameterSource params) {
+        if (titleSubstring == null || titleSubstring.isBlank()) {
+            return;
+        }
+        if (titleSearchMode == TitleSearchMode.FULLTEXT) {
+            appendFullTextCondition(sql, titleSubstring, params);
+            return;
+        }
+        String needle = titleSubstring.toLowerCase(Locale.ROOT);
+        appendTrigramCandidates(sql, List.of(needle), params);
+        // На PostgreSQL выражение LOWER(title) покрыто GIN-индексом idx_posts_title_trgm (pg_trgm)
+        sql.append(" AND LOWER(title) LIKE :title");
+        params.addValue("title", "%" + escapeLike(needle) + "%");
+    }
+
+    private void appendFullTextCondition(StringBuilder sql, String titleSubstring, MapSqlParameterSource params) {
+        List<String> words = titleWords(titleSubstring);
+        if (words.isEmpty()) {
+            return;
+        }
+        if (h2Mode) {
+            // В H2 нет tsvector: каждое слово должно встречаться в заголовке
+            appendTrigramCandidates(sql, words, params);
+            for (int i = 0; i < words.size(); i++) {
+                String name = "titleWord" + i;
+                sql.append(" AND LOWER(title) LIKE :").append(name);
+                params.addValue(name, "%" + words.get(i) + "%");
+            }
+            return;
+        }
+        // Выражение совпадает с idx_posts_title, поэтому поиск идёт по GIN-индексу
+        sql.append(" AND to_tsvector(").append(TS_CONFIG).append(", title) @@ to_tsquery(").append(TS_CONFIG).append(", :tsquery)");
+        params.addValue("tsquery", toTsQuery(words));
+    }
+
+    // Слова из заголовочной части поиска; всё, кроме букв и цифр, служит разделителем и не попадает в tsquery
+    private static List<String> titleWords(String titleSubstring) {
+        List<String> words = new ArrayList<>();
+        for (String word : titleSubstring.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    // Все слова обязательны, каждое ищется как префикс лексемы: "spring dat" -> spring:* & dat:*
+    private static String toTsQuery(List<String> words) {
+        StringBuilder query = new StringBuilder();
+        for (String word : words) {
+            if (!query.isEmpty()) {
+                query.append(" & ");
+            }
+            query.append(word).append(":*");
+        }
+        return query.toString();
+    }
+
+    private void appendOrderBy(StringBuilder sql, MapSqlParameterSource params) {
+        sql.append(" ORDER BY ");
+        if (rankByRelevance && params.hasValue("tsquery")) {
+            sql.append("ts_rank(to_tsvector(").append(TS_CONFIG).append(", title), to_tsquery(").append(TS_CONFIG).append(", :tsquery)) DESC, ");
+        }
+        sql.append("created_at DESC, id DESC");
+    }
+
     @Override
     public List<Post> findFiltered(String titleSubstring, List<String> requiredTags, int offset, int limit) {
-        StringBuilder sql = new StringBuilder("SELECT id, title, text, created_at, updated_at, likes_count, comments_count, image_path, tags FROM posts WHERE 1=1");
+        StringBuilder sql = new StringBuilder("SELECT " + feedColumns + " FROM posts WHERE 1=1");
         MapSqlParameterSource params = new MapSqlParameterSource();
-        if (titleSubstring != null && !titleSubstring.isBlank()) {
-            sql.append(" AND LOWER(title) LIKE :title");
-            params.addValue("title", "%" + titleSubstring.toLowerCase(Locale.ROOT) + "%");
-        }
+        appendTitleCondition(sql, titleSubstring, params);
         appendTagConditions(sql, requiredTags, params);
-        sql.append(" ORDER BY created_at DESC LIMIT :limit OFFSET :offset");
+        appendOrderBy(sql, params);
+        sql.append(" LIMIT :limit OFFSET :offset");
         params.addValue("limit", limit);
         params.addValue("offset", offset);
         return jdbc.query(sql.toString(), params, mapper);
@@ -164,22 +411,81 @@ public class PostRepositoryJdbc implements PostRepository {
     public int countFiltered(String titleSubstring, List<String> requiredTags) {
         StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM posts WHERE 1=1");
         MapSqlParameterSource params = new MapSqlParameterSource();
-        if (titleSubstring != null && !titleSubstring.isBlank()) {
-            sql.append(" AND LOWER(title) LIKE :title");
-            params.addValue("title", "%" + titleSubstring.toLowerCase(Locale.ROOT) + "%");
-        }
+        appendTitleCondition(sql, titleSubstring, params);
         appendTagConditions(sql, requiredTags, params);
         Integer result = jdbc.queryForObject(sql.toString(), params, Integer.class);
         return result == null ? 0 : result;
     }
 
+    @Override
+    public PostPage findPageWithTotal(String titleSubstring, List<String> requiredTags, int offset, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT " + feedColumns + ", COUNT(*) OVER () AS total_count FROM posts WHERE 1=1");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        appendTitleCondition(sql, titleSubstring, params);
+        appendTagConditions(sql, requiredTags, params);
+        appendOrderBy(sql, params);
+        sql.append(" LIMIT :limit OFFSET :offset");
+        params.addValue("limit", limit);
+        params.addValue("offset", offset);
+        PostPage page = jdbc.query(sql.toString(), params, rs -> {
+            List<Post> rows = new ArrayList<>();
+            int total = 0;
+            while (rs.next()) {
+                rows.add(mapper.mapRow(rs, rows.size()));
+                total = rs.getInt(COL_TOTAL_COUNT);
+            }
+            return new PostPage(rows, total);
+        });
+        if (page.posts().isEmpty() && offset > 0) {
+            // Запрошена страница за концом выборки: оконная функция строк не вернула, считаем отдельно
+            return new PostPage(page.posts(), countFiltered(titleSubstring, requiredTags));
+        }
+        return page;
+    }
+
+    @Override
+    public List<Post> findFilteredByCursor(String titleSubstring, List<String> requiredTags, PostCursor cursor, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT " + feedColumns + " FROM posts WHERE 1=1");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        appendTitleCondition(sql, titleSubstring, params);
+        appendTagConditions(sql, requiredTags, params);
+        boolean backward = cursor != null && cursor.backward();
+        if (cursor != null) {
+            // Сравнение кортежей идёт по индексу idx_posts_created_at_id без OFFSET, стоимость не зависит от глубины
+            sql.append(backward ? " AND (created_at, id) > (:cursorCreatedAt, :cursorId)" : " AND (created_at, id) < (:cursorCreatedAt, :cursorId)");
+            params.addValue("cursorCreatedAt", Timestamp.from(cursor.createdAt()));
+            params.addValue("cursorId", cursor.id());
+        }
+        sql.append(backward ? " ORDER BY created_at ASC, id ASC" : " ORDER BY created_at DESC, id DESC");
+        sql.append(" LIMIT :limit");
+        params.addValue("limit", limit);
+        List<Post> rows = jdbc.query(sql.toString(), params, mapper);
+        if (backward) {
+            rows = new ArrayList<>(rows);
+            Collections.reverse(rows);
+        }
+        return rows;
+    }
+
     @Override
     public Optional<Integer> incrementLikesAndGet(Long id) {
+        if (likeBuffer.isEnabled()) {
+            // Один SELECT без блокировки строки: он же проверка существования; запись уйдёт пачкой при сбросе буфера
+            List<Integer> persisted = jdbc.query("SELECT " + likesColumn + " FROM posts WHERE id=:id", Map.of("id", id), (rs, rn) -> rs.getInt(1));
+            if (persisted.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of((int) (persisted.get(0) + likeBuffer.increment(id)));
+        }
         if (!existsById(id)) {
             return Optional.empty();
         }
-        jdbc.update("UPDATE posts SET likes_count = likes_count + 1, updated_at = CURRENT_TIMESTAMP WHERE id=:id", Map.of("id", id));
-        Integer value = jdbc.queryForObject("SELECT likes_count FROM posts WHERE id=:id", Map.of("id", id), Integer.class);
+        if (shardedLikes.isEnabled()) {
+            shardedLikes.add(List.of(Map.entry(id, 1L)));
+        } else {
+            jdbc.update("UPDATE posts SET likes_count = likes_count + 1, updated_at = CURRENT_TIMESTAMP WHERE id=:id", Map.of("id", id));
+        }
+        Integer value = jdbc.queryForObject("SELECT " + likesColumn + " FROM posts WHERE id=:id", Map.of("id", id), Integer.class);
         return Optional.ofNullable(value);
     }
 
@@ -193,6 +499,47 @@ public class PostRepositoryJdbc implements PostRepository {
         jdbc.update("UPDATE posts SET comments_count = CASE WHEN comments_count > 0 THEN comments_count - 1 ELSE 0 END WHERE id=:id", Map.of("id", id));
     }
 
+    @Override
+    public void addCommentsCount(Long id, int delta) {
+        jdbc.update("UPDATE posts SET comments_count = GREATEST(comments_count + :delta, 0) WHERE id=:id",
+                Map.of("id", id, "delta", delta));
+    }
+
+    @Override
+    public void streamAll(long afterId, Consumer<Post> consumer) {
+        String sql = "SELECT " + postColumns + " FROM posts WHERE id > :afterId ORDER BY id";
+        streamingJdbc.query(sql, Map.of("afterId", afterId), (RowCallbackHandler) rs -> consumer.accept(mapper.mapRow(rs, 0)));
+    }
+
+    @Override
+    public void importAll(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return;
+        }
+        if (h2Mode) {
+            MapSqlParameterSource[] batch = posts.stream()
+                    .map(post -> insertParams(post).addValue("id", post.getId()))
+                    .toArray(MapSqlParameterSource[]::new);
+            jdbc.batchUpdate("INSERT INTO posts (id, title, text, preview, created_at, updated_at, likes_count, comments_count, image_path, tags) " +
+                    "VALUES (:id, :title, :text, :preview, :created_at, :updated_at, :likes_count, :comments_count, :image_path, :tags)", batch);
+        } else {
+            List<Object[]> rows = posts.stream().map(post -> new Object[]{
+                    post.getId(), post.getTitle(), post.getText(), preview(post.getText()), post.getCreatedAt(), post.getUpdatedAt(),
+                    Optional.ofNullable(post.getLikesCount()).orElse(0), Optional.ofNullable(post.getCommentsCount()).orElse(0),
+                    post.getImagePath(), post.getTags() == null ? new String[0] : post.getTags()}).toList();
+            PgCopy.copyIn(jdbc, "posts",
+                    "id, title, text, preview, created_at, updated_at, likes_count, comments_count, image_path, tags", rows);
+        }
+        for (Post post : posts) {
+            indexInserted(post.getId(), post.getTitle());
+        }
+    }
+
+    @Override
+    public void restartIdSequence() {
+        JdbcDialect.restartIdSequence(jdbc, "posts", h2Mode);
+    }
+
     @Override
     public boolean updateImagePath(Long id, String imagePath) {
         int updated = jdbc.update("UPDATE posts SET image_path=:image_path, updated_at=CURRENT_TIMESTAMP WHERE id=:id", Map.of("image_path", imagePath, "id", id));
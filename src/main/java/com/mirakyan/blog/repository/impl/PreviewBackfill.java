@@ -0,0 +1,74 @@
+package com.mirakyan.blog.repository.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Однократное заполнение posts.preview у строк, созданных до появления колонки. Идёт пачками по batchSize строк,
+ * каждая пачка — отдельный короткий UPDATE, так что большая таблица не блокируется целиком. Когда строк без
+ * превью не осталось, старт стоит один SELECT по пустой выборке. Запускается после DataSourceInitializer:
+ * колонку preview добавляет скрипт схемы.
+ */
+@Component
+@DependsOn("dataSourceInitializer")
+public class PreviewBackfill implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PreviewBackfill.class);
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final int batchSize;
+
+    public PreviewBackfill(NamedParameterJdbcTemplate jdbc,
+                           @Value("${posts.preview.backfill-batch-size:500}") int batchSize) {
+        this.jdbc = jdbc;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        try {
+            long filled = backfill();
+            if (filled > 0) {
+                log.info("Backfilled preview for {} posts", filled);
+            }
+        } catch (DataAccessException e) {
+            // недоступная БД не роняет старт контекста; незаполненные строки доберёт следующий запуск
+            log.warn("Preview backfill failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return количество заполненных строк
+     */
+    public long backfill() {
+        long filled = 0;
+        while (true) {
+            List<Map<String, Object>> rows = jdbc.queryForList(
+                    "SELECT id, text FROM posts WHERE preview IS NULL ORDER BY id LIMIT :limit",
+                    Map.of("limit", batchSize));
+            if (rows.isEmpty()) {
+                return filled;
+            }
+            MapSqlParameterSource[] batch = rows.stream()
+                    .map(row -> new MapSqlParameterSource()
+                            .addValue("id", ((Number) row.get("id")).longValue())
+                            .addValue("preview", PostRepositoryJdbc.preview((String) row.get("text"))))
+                    .toArray(MapSqlParameterSource[]::new);
+            jdbc.batchUpdate("UPDATE posts SET preview = :preview WHERE id = :id AND preview IS NULL", batch);
+            filled += rows.size();
+            if (rows.size() < batchSize) {
+                return filled;
+            }
+        }
+    }
+}
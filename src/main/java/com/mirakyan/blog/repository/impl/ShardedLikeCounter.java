@@ -0,0 +1,186 @@
+package com.mirakyan.blog.repository.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шардированные счётчики лайков для нескольких узлов приложения над одной БД: лайки пишутся в случайный
+ * шард post_like_shards(post_id, shard, count), поэтому параллельные записи расходятся по разным строкам, а строка
+ * posts (и её индексы, и updated_at) не трогается. Чтение суммирует шарды, фоновая компакция периодически
+ * переносит накопленное в posts.likes_count.
+ */
+@Component
+public class ShardedLikeCounter implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedLikeCounter.class);
+
+    // Сумма шардов поверх posts.likes_count; подставляется в список колонок вместо likes_count
+    static final String LIKES_COLUMN =
+            "likes_count + COALESCE((SELECT SUM(s.count) FROM post_like_shards s WHERE s.post_id = posts.id), 0) AS likes_count";
+
+    private static final String UPSERT_POSTGRES =
+            "INSERT INTO post_like_shards (post_id, shard, count) " +
+            "SELECT :post_id, :shard, :delta WHERE EXISTS (SELECT 1 FROM posts WHERE id = :post_id) " +
+            "ON CONFLICT (post_id, shard) DO UPDATE SET count = post_like_shards.count + EXCLUDED.count";
+
+    private static final String UPSERT_H2 =
+            "MERGE INTO post_like_shards s " +
+            "USING (SELECT id AS post_id, CAST(:shard AS SMALLINT) AS shard, CAST(:delta AS BIGINT) AS delta FROM posts WHERE id = :post_id) v " +
+            "ON s.post_id = v.post_id AND s.shard = v.shard " +
+            "WHEN MATCHED THEN UPDATE SET count = s.count + v.delta " +
+            "WHEN NOT MATCHED THEN INSERT (post_id, shard, count) VALUES (v.post_id, v.shard, v.delta)";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int shards;
+    private final long compactionIntervalMs;
+    private final int compactionBatchSize;
+    private final long compactionBudgetMs;
+    private final String upsertSql;
+    private ScheduledExecutorService scheduler;
+
+    public ShardedLikeCounter(NamedParameterJdbcTemplate jdbc,
+                              PlatformTransactionManager transactionManager,
+                              DataSource dataSource,
+                              @Value("${likes.sharding.enabled:false}") boolean enabled,
+                              @Value("${likes.sharding.shards:16}") int shards,
+                              @Value("${likes.sharding.compaction-interval-ms:60000}") long compactionIntervalMs,
+                              @Value("${likes.sharding.compaction-batch-size:1000}") int compactionBatchSize,
+                              @Value("${likes.sharding.compaction-budget-ms:5000}") long compactionBudgetMs) {
+        this.jdbc = jdbc;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.shards = Math.max(1, shards);
+        this.compactionIntervalMs = compactionIntervalMs;
+        this.compactionBatchSize = compactionBatchSize;
+        this.compactionBudgetMs = compactionBudgetMs;
+        this.upsertSql = enabled && JdbcDialect.isH2(dataSource) ? UPSERT_H2 : UPSERT_POSTGRES;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled || compactionIntervalMs <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "like-shards-compaction");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::compactQuietly, compactionIntervalMs, compactionIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Sharded like counters enabled, shards={}, compactionIntervalMs={}", shards, compactionIntervalMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Прибавляет дельты к случайным шардам постов. Лайки удалённых постов молча отбрасываются.
+     */
+    public void add(List<Map.Entry<Long, Long>> deltas) {
+        MapSqlParameterSource[] batch = deltas.stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("post_id", entry.getKey())
+                        .addValue("shard", ThreadLocalRandom.current().nextInt(shards))
+                        .addValue("delta", entry.getValue()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbc.batchUpdate(upsertSql, batch);
+    }
+
+    /**
+     * Переносит содержимое шардов в posts.likes_count пачками, пока шарды не опустеют или не кончится бюджет времени
+     * прохода. Шарды читаются с FOR UPDATE, поэтому компакции с разных узлов не посчитают одно и то же дважды,
+     * а вычитание (а не удаление) сохраняет лайки, пришедшие во время переноса.
+     *
+     * @return количество перенесённых лайков
+     */
+    public long compact() {
+        if (!enabled) {
+            return 0;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(compactionBudgetMs);
+        long moved = 0;
+        while (true) {
+            BatchResult batch = transactionTemplate.execute(status -> compactBatch());
+            if (batch == null) {
+                break;
+            }
+            moved += batch.moved();
+            if (batch.rows() < compactionBatchSize || System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+        if (moved > 0) {
+            log.debug("Compacted {} likes from shards into posts", moved);
+        }
+        return moved;
+    }
+
+    // Одна пачка в одной транзакции; обнулившиеся шарды этой пачки удаляются в ней же
+    private BatchResult compactBatch() {
+        List<Map<String, Object>> rows = jdbc.queryForList(
+                "SELECT post_id, shard, count FROM post_like_shards WHERE count <> 0 ORDER BY post_id, shard LIMIT :limit FOR UPDATE",
+                Map.of("limit", compactionBatchSize));
+        if (rows.isEmpty()) {
+            return new BatchResult(0, 0);
+        }
+        Map<Long, Long> perPost = new TreeMap<>();
+        MapSqlParameterSource[] shardUpdates = new MapSqlParameterSource[rows.size()];
+        long total = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, Object> row = rows.get(i);
+            long postId = ((Number) row.get("post_id")).longValue();
+            long count = ((Number) row.get("count")).longValue();
+            perPost.merge(postId, count, Long::sum);
+            total += count;
+            shardUpdates[i] = new MapSqlParameterSource()
+                    .addValue("post_id", postId)
+                    .addValue("shard", ((Number) row.get("shard")).intValue())
+                    .addValue("count", count);
+        }
+        jdbc.batchUpdate("UPDATE post_like_shards SET count = count - :count WHERE post_id = :post_id AND shard = :shard", shardUpdates);
+        jdbc.batchUpdate("DELETE FROM post_like_shards WHERE post_id = :post_id AND shard = :shard AND count = 0", shardUpdates);
+        jdbc.batchUpdate("UPDATE posts SET likes_count = likes_count + :delta WHERE id = :id",
+                perPost.entrySet().stream()
+                        .map(e -> new MapSqlParameterSource().addValue("id", e.getKey()).addValue("delta", e.getValue()))
+                        .toArray(MapSqlParameterSource[]::new));
+        return new BatchResult(rows.size(), total);
+    }
+
+    private record BatchResult(int rows, long moved) {
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log.warn("Like shards compaction failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.mirakyan.blog.repository.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process триграммный индекс заголовков (posting lists: триграмма -> id постов) для H2 и одноузловых
+ * развёртываний без pg_trgm. Индекс отдаёт кандидатов — надмножество подходящих постов, окончательная проверка
+ * остаётся за LIKE в SQL, поэтому лишние записи (например, от откатившейся транзакции) на результат не влияют.
+ */
+public class TitleTrigramIndex {
+
+    private final Map<Long, ConcurrentSkipListSet<Long>> postings = new ConcurrentHashMap<>();
+    // все заголовки, под которыми id сейчас проиндексирован (больше одного — пока не закоммичено обновление)
+    private final Map<Long, CopyOnWriteArrayList<String>> titles = new ConcurrentHashMap<>();
+
+    public void add(long id, String title) {
+        String normalized = normalize(title);
+        titles.computeIfAbsent(id, k -> new CopyOnWriteArrayList<>()).addIfAbsent(normalized);
+        for (long trigram : trigrams(normalized)) {
+            postings.compute(trigram, (k, set) -> {
+                ConcurrentSkipListSet<Long> ids = set == null ? new ConcurrentSkipListSet<>() : set;
+                ids.add(id);
+                return ids;
+            });
+        }
+    }
+
+    /**
+     * Оставляет за id только заголовок {@code title}, снимая триграммы всех прочих его заголовков.
+     */
+    public void retainOnly(long id, String title) {
+        String normalized = normalize(title);
+        CopyOnWriteArrayList<String> indexed = titles.get(id);
+        if (indexed == null) {
+            add(id, title);
+            return;
+        }
+        Set<Long> keep = trigrams(normalized);
+        for (String old : indexed) {
+            if (!old.equals(normalized)) {
+                removeTrigrams(id, trigrams(old), keep);
+                indexed.remove(old);
+            }
+        }
+        if (!indexed.contains(normalized)) {
+            add(id, title);
+        }
+    }
+
+    public void remove(long id) {
+        List<String> indexed = titles.remove(id);
+        if (indexed == null) {
+            return;
+        }
+        for (String old : indexed) {
+            removeTrigrams(id, trigrams(old), Set.of());
+        }
+    }
+
+    public int size() {
+        return titles.size();
+    }
+
+    /**
+     * Кандидаты, заголовки которых содержат все {@code needles}.
+     *
+     * @return null, если индекс не может ответить (подстрока короче триграммы или кандидатов больше {@code maxCandidates})
+     */
+    public Set<Long> candidates(List<String> needles, int maxCandidates) {
+        Set<Long> required = new HashSet<>();
+        for (String needle : needles) {
+            String normalized = normalize(needle);
+            if (normalized.length() < 3) {
+                return null;
+            }
+            required.addAll(trigrams(normalized));
+        }
+        if (required.isEmpty()) {
+            return null;
+        }
+        List<Set<Long>> lists = new ArrayList<>(required.size());
+        for (long trigram : required) {
+            Set<Long> ids = postings.get(trigram);
+            if (ids == null) {
+                return Set.of();
+            }
+            lists.add(ids);
+        }
+        // пересечение начиная с самого короткого списка
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>();
+        for (Long id : lists.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).contains(id);
+            }
+            if (inAll) {
+                result.add(id);
+                if (result.size() > maxCandidates) {
+                    return null;
+                }
+            }
+        }
+        return result;
+    }
+
+    private void removeTrigrams(long id, Set<Long> trigrams, Set<Long> keep) {
+        for (long trigram : trigrams) {
+            if (keep.contains(trigram)) {
+                continue;
+            }
+            postings.computeIfPresent(trigram, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    static Set<Long> trigrams(String normalized) {
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            result.add(((long) normalized.charAt(i) << 32) | ((long) normalized.charAt(i + 1) << 16) | normalized.charAt(i + 2));
+        }
+        return result;
+    }
+}
@@ -1,15 +1,27 @@
 package com.mirakyan.blog.service;
 
 import com.mirakyan.blog.dto.CommentDto;
+import com.mirakyan.blog.dto.CommentsPageDto;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface CommentService {
     List<CommentDto> getCommentsByPostId(Long postId);
 
+    String getCommentsETag(Long postId);
+
+    CommentsPageDto getCommentsPage(Long postId, String cursor, int limit);
+
+    // Отдаёт комментарии по одному прямо из ResultSet, не собирая их в список
+    void streamCommentsByPostId(Long postId, Consumer<CommentDto> consumer);
+
     Optional<CommentDto> addCommentToPost(Long postId, CommentDto commentDto);
 
+    // Пакетное добавление: одна проверка поста, одна вставка batchUpdate и одно обновление comments_count
+    Optional<List<CommentDto>> addCommentsToPost(Long postId, List<CommentDto> commentDtos);
+
     Optional<CommentDto> updateComment(Long postId, Long commentId, CommentDto commentDto);
 
     Optional<CommentDto> getCommentById(Long postId, Long commentId);
@@ -2,22 +2,40 @@ package com.mirakyan.blog.service;
 
 import com.mirakyan.blog.dto.PostDto;
 import com.mirakyan.blog.dto.PostsResponseDto;
+import com.mirakyan.blog.image.ImageFile;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface PostService {
     Optional<PostDto> getPostById(Long id);
 
+    // ETag поста по лёгкому запросу версии (или из кэша); пусто, если поста нет
+    Optional<String> getPostETag(Long id);
+
+    // Пост вместе с ETag той же загруженной версии — для ответа 200, чтобы тело и ETag не расходились
+    Optional<PostWithETag> getPostWithETag(Long id);
+
     PostDto createPost(PostDto postDto);
 
+    // Пакетное создание: одна вставка batchUpdate и одна инвалидация ленты на весь пакет
+    List<PostDto> createPosts(List<PostDto> postDtos);
+
     Optional<PostDto> updatePost(Long id, PostDto postDto);
 
     boolean deletePost(Long id);
 
     Optional<Integer> incrementLikes(Long id);
 
-    PostsResponseDto getAllPosts(String search, int pageNumber, int pageSize);
+    default PostsResponseDto getAllPosts(String search, int pageNumber, int pageSize) {
+        return getAllPosts(search, pageNumber, pageSize, true);
+    }
+
+    // includeTotal=false: без подсчёта общего количества, lastPage не заполняется
+    PostsResponseDto getAllPosts(String search, int pageNumber, int pageSize, boolean includeTotal);
+
+    PostsResponseDto getPostsByCursor(String search, String cursor, int pageSize);
 
     boolean existsById(Long postId);
 
@@ -25,7 +43,18 @@ public interface PostService {
 
     void decrementCommentsCount(Long postId);
 
+    void addCommentsCount(Long postId, int delta);
+
     boolean updateImage(Long id, MultipartFile image);
 
-    Optional<byte[]> getImage(Long id);
+    // Файл изображения для потоковой отдачи; пусто, если изображения нет
+    default Optional<ImageFile> getImage(Long id) {
+        return getImage(id, null);
+    }
+
+    // size — желаемый размер по большей стороне: готовое превью, если оно есть, иначе оригинал
+    Optional<ImageFile> getImage(Long id, Integer size);
+
+    record PostWithETag(PostDto post, String etag) {
+    }
 }
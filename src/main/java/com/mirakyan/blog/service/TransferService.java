@@ -0,0 +1,23 @@
+package com.mirakyan.blog.service;
+
+import com.mirakyan.blog.dto.TransferProgressDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Optional;
+
+public interface TransferService {
+
+    // Пишет все посты, затем все комментарии в NDJSON из одного согласованного снимка БД
+    void exportAll(OutputStream out) throws IOException;
+
+    /**
+     * Загружает NDJSON порциями, каждая порция фиксируется своей транзакцией. Записи с id не больше
+     * afterPostId/afterCommentId пропускаются — так прерванный импорт продолжается с последних зафиксированных id.
+     */
+    TransferProgressDto importAll(InputStream in, long afterPostId, long afterCommentId);
+
+    // Ход текущего или результат последнего импорта
+    Optional<TransferProgressDto> getImportProgress();
+}
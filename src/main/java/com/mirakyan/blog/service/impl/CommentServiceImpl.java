@@ -1,7 +1,9 @@
 package com.mirakyan.blog.service.impl;
 
 import com.mirakyan.blog.dto.CommentDto;
+import com.mirakyan.blog.dto.CommentsPageDto;
 import com.mirakyan.blog.model.Comment;
+import com.mirakyan.blog.model.CommentCursor;
 import com.mirakyan.blog.repository.CommentRepository;
 import com.mirakyan.blog.service.CommentService;
 import com.mirakyan.blog.service.PostService;
@@ -12,8 +14,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -24,12 +28,43 @@ public class CommentServiceImpl implements CommentService {
     private static final Logger log = LoggerFactory.getLogger(CommentServiceImpl.class);
 
     @Override
+    @Transactional(readOnly = true)
     public List<CommentDto> getCommentsByPostId(Long postId) {
         return commentRepository.findByPostId(postId)
                 .stream().map(this::convertToDto)
                 .toList();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public String getCommentsETag(Long postId) {
+        return commentRepository.findVersionByPostId(postId).etag();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CommentsPageDto getCommentsPage(Long postId, String cursor, int limit) {
+        if (limit < 1) limit = 1;
+        CommentCursor position = cursor == null || cursor.isBlank() ? null : CommentCursor.decode(cursor);
+        // Лишняя строка показывает, есть ли следующая страница
+        List<Comment> rows = new ArrayList<>(commentRepository.findByPostIdAfter(postId, position, limit + 1));
+        boolean hasNext = rows.size() > limit;
+        if (hasNext) {
+            rows.remove(rows.size() - 1);
+        }
+        return CommentsPageDto.builder()
+                .comments(rows.stream().map(this::convertToDto).toList())
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? CommentCursor.after(rows.get(rows.size() - 1)).encode() : null)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamCommentsByPostId(Long postId, Consumer<CommentDto> consumer) {
+        commentRepository.streamByPostId(postId, comment -> consumer.accept(convertToDto(comment)));
+    }
+
     @Override
     public Optional<CommentDto> addCommentToPost(Long postId, CommentDto commentDto) {
         if (!postService.existsById(postId)) {
@@ -48,6 +83,27 @@ public class CommentServiceImpl implements CommentService {
         return Optional.of(convertToDto(savedComment));
     }
 
+    @Override
+    public Optional<List<CommentDto>> addCommentsToPost(Long postId, List<CommentDto> commentDtos) {
+        if (!postService.existsById(postId)) {
+            return Optional.empty();
+        }
+        Instant now = Instant.now();
+        List<Comment> comments = commentDtos.stream()
+                .map(dto -> Comment.builder()
+                        .text(dto.getText())
+                        .postId(postId)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .build())
+                .toList();
+        List<Comment> saved = commentRepository.insertAll(comments);
+        // денормализованный счётчик — одним UPDATE на весь пакет
+        postService.addCommentsCount(postId, saved.size());
+        log.info("Добавлено комментариев пакетом: {} к посту id={}", saved.size(), postId);
+        return Optional.of(saved.stream().map(this::convertToDto).toList());
+    }
+
     @Override
     public Optional<CommentDto> updateComment(Long postId, Long commentId, CommentDto commentDto) {
         return commentRepository.findById(commentId)
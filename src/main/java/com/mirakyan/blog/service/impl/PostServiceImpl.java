@@ -1,8 +1,18 @@
 package com.mirakyan.blog.service.impl;
 
+import com.mirakyan.blog.cache.FeedCache;
+import com.mirakyan.blog.cache.PostCache;
 import com.mirakyan.blog.dto.PostDto;
 import com.mirakyan.blog.dto.PostsResponseDto;
+import com.mirakyan.blog.image.HotImageCache;
+import com.mirakyan.blog.image.ImageFile;
+import com.mirakyan.blog.image.ImageStore;
+import com.mirakyan.blog.image.ImageVariants;
+import com.mirakyan.blog.image.ImageTypeDetector;
 import com.mirakyan.blog.model.Post;
+import com.mirakyan.blog.model.PostCursor;
+import com.mirakyan.blog.model.PostPage;
+import com.mirakyan.blog.model.PostVersion;
 import com.mirakyan.blog.repository.PostRepository;
 import com.mirakyan.blog.service.PostService;
 import lombok.RequiredArgsConstructor;
@@ -13,9 +23,11 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.util.*;
 
@@ -26,33 +38,64 @@ public class PostServiceImpl implements PostService {
 
     private static final Logger log = LoggerFactory.getLogger(PostServiceImpl.class);
 
-    private static final String IMAGES_DIR = "images";
-    private static final int MAX_PREVIEW_LENGTH = 128;
+    private static final int MAX_PREVIEW_LENGTH = PostRepository.PREVIEW_LENGTH;
 
     private final PostRepository postRepository;
+    private final PostCache postCache;
+    private final FeedCache feedCache;
+    private final ImageStore imageStore;
+    private final ImageVariants imageVariants;
+    private final HotImageCache hotImages;
 
     @Transactional(readOnly = true)
     @Override
     public Optional<PostDto> getPostById(Long id) {
-        return postRepository.findById(id)
+        return postCache.get(id, postRepository::findById)
                 .map(this::convertToDto);
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public Optional<String> getPostETag(Long id) {
+        return postCache.peek(id).map(PostVersion::of)
+                .or(() -> postRepository.findVersion(id))
+                .map(PostVersion::etag);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Optional<PostWithETag> getPostWithETag(Long id) {
+        return postCache.get(id, postRepository::findById)
+                .map(post -> new PostWithETag(convertToDto(post), PostVersion.of(post).etag()));
+    }
+
     @Override
     public PostDto createPost(PostDto postDto) {
-        Post post = Post.builder()
+        Post savePost = postRepository.save(newPost(postDto));
+        feedCache.invalidateAll();
+        log.info("Создан пост id={} title='{}'", savePost.getId(), savePost.getTitle());
+        return convertToDto(savePost);
+    }
+
+    @Override
+    public List<PostDto> createPosts(List<PostDto> postDtos) {
+        List<Post> saved = postRepository.insertAll(postDtos.stream().map(this::newPost).toList());
+        feedCache.invalidateAll();
+        log.info("Создано постов пакетом: {}", saved.size());
+        return saved.stream().map(this::convertToDto).toList();
+    }
+
+    private Post newPost(PostDto postDto) {
+        Instant now = Instant.now();
+        return Post.builder()
                 .title(postDto.getTitle())
                 .text(postDto.getText())
                 .tags(normalizeTagsToArray(postDto.getTags()))
                 .likesCount(0)
                 .commentsCount(0)
-                .createdAt(Instant.now())
-                .updatedAt(Instant.now())
+                .createdAt(now)
+                .updatedAt(now)
                 .build();
-
-        Post savePost = postRepository.save(post);
-        log.info("Создан пост id={} title='{}'", savePost.getId(), savePost.getTitle());
-        return convertToDto(savePost);
     }
 
     @Override
@@ -65,6 +108,8 @@ public class PostServiceImpl implements PostService {
             }
             post.setUpdatedAt(Instant.now());
             Post updateDTO = postRepository.save(post);
+            postCache.evict(id);
+            feedCache.invalidateAll();
             log.info("Обновлён пост id={}", id);
             return convertToDto(updateDTO);
         });
@@ -74,6 +119,8 @@ public class PostServiceImpl implements PostService {
     public boolean deletePost(Long id) {
         if (postRepository.existsById(id)) {
             postRepository.deleteById(id);
+            postCache.evict(id);
+            feedCache.invalidateAll();
             log.info("Удалён пост id={}", id);
             return true;
         }
@@ -82,40 +129,37 @@ public class PostServiceImpl implements PostService {
 
     @Override
     public Optional<Integer> incrementLikes(Long id) {
-        return postRepository.incrementLikesAndGet(id);
+        Optional<Integer> likes = postRepository.incrementLikesAndGet(id);
+        likes.ifPresent(count -> postCache.updateLikes(id, count));
+        return likes;
     }
 
+    @Transactional(readOnly = true)
     @Override
-    public PostsResponseDto getAllPosts(String search, int pageNumber, int pageSize) {
-        if (pageNumber < 1) pageNumber = 1;
-        if (pageSize < 1) pageSize = 1;
+    public PostsResponseDto getAllPosts(String search, int pageNumber, int pageSize, boolean includeTotal) {
+        int page = Math.max(1, pageNumber);
+        int size = Math.max(1, pageSize);
 
-        String rawSearch = search == null ? "" : search.trim();
-        List<String> tokens = rawSearch.isEmpty() ? List.of() : Arrays.stream(rawSearch.split("\\s+"))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .toList();
-
-        List<String> tagTokens = new ArrayList<>();
-        List<String> titleTokens = new ArrayList<>();
-        for (String token : tokens) {
-            if (token.startsWith("#") && token.length() > 1) {
-                tagTokens.add(token.substring(1).toLowerCase(Locale.ROOT));
-            } else if (!token.startsWith("#")) {
-                titleTokens.add(token);
-            }
-        }
-        String titleSubstring = titleTokens.isEmpty() ? "" : String.join(" ", titleTokens).toLowerCase(Locale.ROOT);
+        SearchQuery query = parseSearch(search);
+        FeedCache.Key key = new FeedCache.Key(query.titleSubstring(), query.tags(), "page:" + page, size, includeTotal);
+        return feedCache.get(key, () -> includeTotal
+                ? getPageWithTotal(query, page, size)
+                : getPageWithoutTotal(query, page, size));
+    }
 
-        int total = postRepository.countFiltered(titleSubstring, tagTokens.isEmpty() ? null : tagTokens);
+    private PostsResponseDto getPageWithTotal(SearchQuery query, int pageNumber, int pageSize) {
+        int offset = (pageNumber - 1) * pageSize;
+        PostPage page = postRepository.findPageWithTotal(query.titleSubstring(), query.tags(), offset, pageSize);
+        int total = page.total();
         int lastPage = total == 0 ? 0 : (int) Math.ceil(total / (double) pageSize);
         if (lastPage != 0 && pageNumber > lastPage) {
+            // Редкий случай: страница за концом выборки, отдаём последнюю
             pageNumber = lastPage;
+            offset = (pageNumber - 1) * pageSize;
+            page = postRepository.findPageWithTotal(query.titleSubstring(), query.tags(), offset, pageSize);
         }
-        int offset = (pageNumber - 1) * pageSize;
-        List<Post> page = total == 0 ? Collections.emptyList() : postRepository.findFiltered(titleSubstring, tagTokens.isEmpty() ? null : tagTokens, offset, pageSize);
 
-        List<PostDto> slice = page.stream()
+        List<PostDto> slice = page.posts().stream()
                 .map(this::convertToDto)
                 .map(this::truncateTextForPreview)
                 .toList();
@@ -123,17 +167,146 @@ public class PostServiceImpl implements PostService {
         boolean hasPrev = pageNumber > 1 && lastPage > 0;
         boolean hasNext = pageNumber < lastPage;
 
-        return PostsResponseDto.builder()
+        return withETag(PostsResponseDto.builder()
                 .posts(slice)
                 .hasPrev(hasPrev)
                 .hasNext(hasNext)
                 .lastPage(lastPage)
-                .build();
+                .build(), page.posts());
+    }
+
+    // Без точного COUNT: одна лишняя строка отвечает на вопрос hasNext
+    private PostsResponseDto getPageWithoutTotal(SearchQuery query, int pageNumber, int pageSize) {
+        int offset = (pageNumber - 1) * pageSize;
+        List<Post> rows = postRepository.findFiltered(query.titleSubstring(), query.tags(), offset, pageSize + 1);
+        boolean hasNext = rows.size() > pageSize;
+        List<Post> shown = hasNext ? rows.subList(0, pageSize) : rows;
+        List<PostDto> slice = shown.stream()
+                .map(this::convertToDto)
+                .map(this::truncateTextForPreview)
+                .toList();
+
+        return withETag(PostsResponseDto.builder()
+                .posts(slice)
+                .hasPrev(pageNumber > 1)
+                .hasNext(hasNext)
+                .build(), shown);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public PostsResponseDto getPostsByCursor(String search, String cursor, int pageSize) {
+        int size = Math.max(1, pageSize);
+        SearchQuery query = parseSearch(search);
+        String position = cursor == null || cursor.isBlank() ? "" : cursor;
+        FeedCache.Key key = new FeedCache.Key(query.titleSubstring(), query.tags(), "cursor:" + position, size, false);
+        return feedCache.get(key, () -> getPageByCursor(query, position, size));
+    }
+
+    private PostsResponseDto getPageByCursor(SearchQuery query, String cursor, int pageSize) {
+        PostCursor position = cursor.isEmpty() ? null : PostCursor.decode(cursor);
+        boolean backward = position != null && position.backward();
+
+        // Лишняя строка показывает, есть ли ещё данные в направлении движения
+        List<Post> rows = new ArrayList<>(postRepository.findFilteredByCursor(query.titleSubstring(), query.tags(), position, pageSize + 1));
+        boolean more = rows.size() > pageSize;
+        if (more) {
+            // строки всегда по убыванию: при движении назад лишняя — самая новая (первая)
+            rows.remove(backward ? 0 : rows.size() - 1);
+        }
+        boolean hasNext = backward || more;
+        boolean hasPrev = backward ? more : position != null;
+
+        List<PostDto> slice = rows.stream()
+                .map(this::convertToDto)
+                .map(this::truncateTextForPreview)
+                .toList();
+
+        return withETag(PostsResponseDto.builder()
+                .posts(slice)
+                .hasPrev(hasPrev)
+                .hasNext(hasNext)
+                .nextCursor(hasNext && !rows.isEmpty() ? PostCursor.after(rows.get(rows.size() - 1)).encode() : null)
+                .prevCursor(hasPrev && !rows.isEmpty() ? PostCursor.before(rows.get(0)).encode() : null)
+                .build(), rows);
     }
 
+    // ETag страницы (FNV-1a, 64 бита) из версий показанных постов: id, updated_at с наносекундами, лайки и
+    // комментарии — те же поля, что у ETag отдельного поста. Любая правка поста меняет updated_at, поэтому
+    // содержимое (текст, теги) хэшировать не нужно; 32-битные hashCode строк сюда не входят
+    private PostsResponseDto withETag(PostsResponseDto response, List<Post> rows) {
+        long hash = 0xcbf29ce484222325L;
+        for (Post row : rows) {
+            PostVersion version = PostVersion.of(row);
+            Instant updated = version.updatedAt();
+            hash = mix(hash, version.id());
+            hash = mix(hash, updated == null ? 0 : updated.getEpochSecond());
+            hash = mix(hash, updated == null ? 0 : updated.getNano());
+            hash = mix(hash, version.likesCount());
+            hash = mix(hash, version.commentsCount());
+        }
+        hash = mix(hash, (response.isHasPrev() ? 1 : 0) | (response.isHasNext() ? 2 : 0));
+        hash = mix(hash, response.getLastPage() == null ? -1 : response.getLastPage());
+        hash = mix(hash, response.getNextCursor());
+        hash = mix(hash, response.getPrevCursor());
+        response.setEtag("\"f" + Long.toHexString(hash) + "\"");
+        return response;
+    }
+
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            return mix(hash, -1L);
+        }
+        hash = mix(hash, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash ^= c & 0xFF;
+            hash *= 0x100000001b3L;
+            hash ^= c >>> 8;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Пакетный доступ у разбора поиска и сборки DTO — для бенчмарков в src/bench
+    SearchQuery parseSearch(String search) {
+        String rawSearch = search == null ? "" : search.trim();
+        List<String> tokens = rawSearch.isEmpty() ? List.of() : Arrays.stream(rawSearch.split("\\s+"))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toList();
+
+        List<String> tagTokens = new ArrayList<>();
+        List<String> titleTokens = new ArrayList<>();
+        for (String token : tokens) {
+            if (token.startsWith("#") && token.length() > 1) {
+                tagTokens.add(token.substring(1).toLowerCase(Locale.ROOT));
+            } else if (!token.startsWith("#")) {
+                titleTokens.add(token);
+            }
+        }
+        String titleSubstring = titleTokens.isEmpty() ? "" : String.join(" ", titleTokens).toLowerCase(Locale.ROOT);
+        // порядок и повторы тегов на выборку не влияют — сортируем, чтобы одинаковые запросы давали один ключ кэша
+        List<String> tags = tagTokens.stream().distinct().sorted().toList();
+        return new SearchQuery(titleSubstring, tags.isEmpty() ? null : tags);
+    }
+
+    record SearchQuery(String titleSubstring, List<String> tags) {
+    }
+
+    // Только чтение: внутри пишущей транзакции PostCache не кэширует загруженный пост
+    @Transactional(readOnly = true)
     @Override
     public boolean existsById(Long postId) {
-        return postRepository.existsById(postId);
+        return postCache.get(postId, postRepository::findById).isPresent();
     }
 
     private String[] normalizeTagsToArray(List<String> tags) {
@@ -159,11 +332,19 @@ public class PostServiceImpl implements PostService {
     @Override
     public void incrementCommentsCount(Long id) {
         postRepository.incrementCommentsCount(id);
+        postCache.evict(id);
+    }
+
+    @Override
+    public void addCommentsCount(Long postId, int delta) {
+        postRepository.addCommentsCount(postId, delta);
+        postCache.evict(postId);
     }
 
     @Override
     public void decrementCommentsCount(Long postId) {
         postRepository.decrementCommentsCount(postId);
+        postCache.evict(postId);
     }
 
     @Override
@@ -171,22 +352,17 @@ public class PostServiceImpl implements PostService {
         if (image == null || image.isEmpty()) {
             return false;
         }
-        if (!postRepository.existsById(id)) {
+        if (!existsById(id)) {
             return false;
         }
-        try {
-            String original = image.getOriginalFilename();
-            String ext = "";
-            if (original != null && original.contains(".")) {
-                ext = original.substring(original.lastIndexOf('.'));
-            }
-            Files.createDirectories(Paths.get(IMAGES_DIR));
-            String fileName = "post-" + id + ext;
-            Path target = Paths.get(IMAGES_DIR, fileName).toAbsolutePath();
-            Files.write(target, image.getBytes());
-            boolean updated = postRepository.updateImagePath(id, target.toString());
+        try (InputStream in = image.getInputStream()) {
+            // Файл пишется в хранилище потоком; старый станет мусором и уйдёт при сборке, если на него никто не ссылается
+            String key = imageStore.store(in);
+            boolean updated = postRepository.updateImagePath(id, key);
+            postCache.evict(id);
             if (updated) {
-                log.info("Обновлено изображение поста id={}", id);
+                imageVariants.generateAsync(key);
+                log.info("Обновлено изображение поста id={} ({})", id, key);
             }
             return updated;
         } catch (IOException e) {
@@ -195,19 +371,35 @@ public class PostServiceImpl implements PostService {
         }
     }
 
+    @Transactional(readOnly = true)
     @Override
-    public Optional<byte[]> getImage(Long id) {
-        return postRepository.findById(id).flatMap(post -> {
+    public Optional<ImageFile> getImage(Long id, Integer size) {
+        return postCache.get(id, postRepository::findById).flatMap(post -> {
             String pathStr = post.getImagePath();
             if (pathStr == null) {
                 return Optional.empty();
             }
-            Path path = Paths.get(pathStr);
-            if (!Files.exists(path)) {
-                return Optional.empty();
+            Path path = size == null ? imageStore.resolve(pathStr)
+                    : imageVariants.find(pathStr, size).orElseGet(() -> imageStore.resolve(pathStr));
+            boolean immutable = ImageStore.isKey(pathStr);
+            if (immutable) {
+                Optional<ImageFile> hot = hotImages.get(path);
+                if (hot.isPresent()) {
+                    return hot;
+                }
             }
             try {
-                return Optional.of(Files.readAllBytes(path));
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                Instant lastModified = attributes.lastModifiedTime().toInstant();
+                // У файлов хранилища валидатор — хэш содержимого; у старых файлов — время изменения + размер
+                String etag = immutable
+                        ? "\"" + path.getFileName() + "\""
+                        : "\"" + Long.toHexString(lastModified.toEpochMilli()) + "-" + Long.toHexString(attributes.size()) + "\"";
+                ImageFile image = new ImageFile(path, attributes.size(), lastModified, ImageTypeDetector.detect(path), etag);
+                // Старые файлы по абсолютному пути перезаписываются на месте — в кэш отображений только файлы хранилища
+                return Optional.of(immutable ? hotImages.admit(image) : image);
+            } catch (NoSuchFileException e) {
+                return Optional.empty();
             } catch (IOException e) {
                 log.warn("Не удалось прочитать изображение поста id={}: {}", id, e.getMessage());
                 return Optional.empty();
@@ -215,7 +407,7 @@ public class PostServiceImpl implements PostService {
         });
     }
 
-    private PostDto convertToDto(Post post) {
+    PostDto convertToDto(Post post) {
         Integer likes = post.getLikesCount() == null ? 0 : post.getLikesCount();
         Integer comments = post.getCommentsCount() == null ? 0 : post.getCommentsCount();
         List<String> tags = arrayToList(post.getTags());
@@ -232,9 +424,12 @@ public class PostServiceImpl implements PostService {
                 .build();
     }
 
-    private PostDto truncateTextForPreview(PostDto postDto) {
-        if (postDto.getText() != null && postDto.getText().length() > MAX_PREVIEW_LENGTH) {
-            postDto.setText(postDto.getText().substring(0, MAX_PREVIEW_LENGTH) + "…");
+    PostDto truncateTextForPreview(PostDto postDto) {
+        String text = postDto.getText();
+        if (text != null && text.length() > MAX_PREVIEW_LENGTH) {
+            // не оставляем половину суррогатной пары на границе
+            int end = Character.isHighSurrogate(text.charAt(MAX_PREVIEW_LENGTH - 1)) ? MAX_PREVIEW_LENGTH - 1 : MAX_PREVIEW_LENGTH;
+            postDto.setText(text.substring(0, end) + "…");
         }
         return postDto;
     }
@@ -0,0 +1,205 @@
+package com.mirakyan.blog.service.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.mirakyan.blog.cache.FeedCache;
+import com.mirakyan.blog.dto.TransferProgressDto;
+import com.mirakyan.blog.exception.ImportInProgressException;
+import com.mirakyan.blog.exception.InvalidImportException;
+import com.mirakyan.blog.model.Comment;
+import com.mirakyan.blog.model.Post;
+import com.mirakyan.blog.repository.CommentRepository;
+import com.mirakyan.blog.repository.PostRepository;
+import com.mirakyan.blog.service.TransferService;
+import com.mirakyan.blog.transfer.ImportProgress;
+import com.mirakyan.blog.transfer.NdjsonTransferCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class TransferServiceImpl implements TransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferServiceImpl.class);
+
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final FeedCache feedCache;
+    private final TransactionTemplate chunkTransaction;
+    private final int batchSize;
+    private final long logEvery;
+    private final JsonFactory jsonFactory = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private final AtomicBoolean importRunning = new AtomicBoolean();
+    private volatile ImportProgress lastImport;
+
+    public TransferServiceImpl(PostRepository postRepository, CommentRepository commentRepository, FeedCache feedCache,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${transfer.import.batch-size:1000}") int batchSize,
+                               @Value("${transfer.log-every:100000}") long logEvery) {
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.feedCache = feedCache;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.logEvery = Math.max(1, logEvery);
+    }
+
+    // REPEATABLE_READ: посты и комментарии читаются из одного снимка, комментарий не сошлётся на пост, которого нет в выгрузке
+    @Override
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void exportAll(OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        AtomicLong written = new AtomicLong();
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            try {
+                postRepository.streamAll(0, post -> {
+                    write(() -> NdjsonTransferCodec.writePost(generator, post));
+                    logExported(written.incrementAndGet());
+                });
+                commentRepository.streamAll(0, comment -> {
+                    write(() -> NdjsonTransferCodec.writeComment(generator, comment));
+                    logExported(written.incrementAndGet());
+                });
+            } catch (UncheckedIOException e) {
+                // клиент оборвал соединение — выгрузку прекращаем, курсор закроется вместе с транзакцией
+                throw e.getCause();
+            }
+        }
+        log.info("Выгрузка завершена: {} записей за {} мс", written.get(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Override
+    public TransferProgressDto importAll(InputStream in, long afterPostId, long afterCommentId) {
+        if (!importRunning.compareAndSet(false, true)) {
+            throw new ImportInProgressException();
+        }
+        ImportProgress progress = new ImportProgress(afterPostId, afterCommentId);
+        lastImport = progress;
+        log.info("Импорт начат (afterPostId={}, afterCommentId={})", afterPostId, afterCommentId);
+        List<Post> posts = new ArrayList<>(batchSize);
+        List<Comment> comments = new ArrayList<>(batchSize);
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            Object record;
+            while ((record = NdjsonTransferCodec.read(parser)) != null) {
+                if (record instanceof Post post) {
+                    if (post.getId() <= afterPostId) {
+                        progress.skip();
+                        continue;
+                    }
+                    // порядок типов в потоке сохраняется: комментарии пишутся только после своих постов
+                    flushComments(comments, progress);
+                    posts.add(post);
+                    if (posts.size() >= batchSize) {
+                        flushPosts(posts, progress);
+                    }
+                } else if (record instanceof Comment comment) {
+                    if (comment.getId() <= afterCommentId) {
+                        progress.skip();
+                        continue;
+                    }
+                    flushPosts(posts, progress);
+                    comments.add(comment);
+                    if (comments.size() >= batchSize) {
+                        flushComments(comments, progress);
+                    }
+                }
+            }
+            flushPosts(posts, progress);
+            flushComments(comments, progress);
+            chunkTransaction.executeWithoutResult(status -> {
+                postRepository.restartIdSequence();
+                commentRepository.restartIdSequence();
+            });
+            progress.complete();
+            log.info("Импорт завершён: {}", progress.snapshot());
+        } catch (InvalidImportException e) {
+            progress.fail(e.getMessage());
+            log.warn("Импорт остановлен: {}", e.getMessage());
+        } catch (JsonProcessingException e) {
+            // у части исключений Jackson позиции нет (getLocation() == null)
+            String where = e.getLocation() != null ? " в строке " + e.getLocation().getLineNr() : "";
+            progress.fail("Некорректный JSON" + where + ": " + e.getOriginalMessage());
+            log.warn("Импорт остановлен: {}", e.getOriginalMessage());
+        } catch (IOException | RuntimeException e) {
+            progress.fail(e.getMessage());
+            log.error("Импорт прерван ошибкой", e);
+        } finally {
+            // даже после сбоя часть порций уже зафиксирована — лента должна их увидеть
+            feedCache.invalidateAll();
+            importRunning.set(false);
+        }
+        return progress.snapshot();
+    }
+
+    @Override
+    public Optional<TransferProgressDto> getImportProgress() {
+        ImportProgress progress = lastImport;
+        return progress == null ? Optional.empty() : Optional.of(progress.snapshot());
+    }
+
+    private void flushPosts(List<Post> posts, ImportProgress progress) {
+        if (posts.isEmpty()) {
+            return;
+        }
+        chunkTransaction.executeWithoutResult(status -> postRepository.importAll(posts));
+        progress.postsCommitted(posts.size(), posts.get(posts.size() - 1).getId());
+        posts.clear();
+        logImported(progress);
+    }
+
+    private void flushComments(List<Comment> comments, ImportProgress progress) {
+        if (comments.isEmpty()) {
+            return;
+        }
+        chunkTransaction.executeWithoutResult(status -> commentRepository.importAll(comments));
+        progress.commentsCommitted(comments.size(), comments.get(comments.size() - 1).getId());
+        comments.clear();
+        logImported(progress);
+    }
+
+    private void logImported(ImportProgress progress) {
+        long imported = progress.imported();
+        if (imported % logEvery < batchSize) {
+            log.info("Импортировано записей: {}", imported);
+        }
+    }
+
+    private void logExported(long written) {
+        if (written % logEvery == 0) {
+            log.info("Выгружено записей: {}", written);
+        }
+    }
+
+    private static void write(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,71 @@
+package com.mirakyan.blog.transfer;
+
+import com.mirakyan.blog.dto.TransferProgressDto;
+import com.mirakyan.blog.dto.TransferProgressDto.State;
+
+import java.time.Instant;
+
+/**
+ * Ход текущего импорта. Пишет только поток импорта, читает GET /api/admin/import — поэтому снимок берётся под
+ * монитором, чтобы счётчики и последние id в нём были согласованы между собой.
+ */
+public class ImportProgress {
+
+    private final Instant startedAt = Instant.now();
+    private State state = State.RUNNING;
+    private long postsImported;
+    private long commentsImported;
+    private long skipped;
+    private long lastPostId;
+    private long lastCommentId;
+    private Instant finishedAt;
+    private String error;
+
+    public ImportProgress(long afterPostId, long afterCommentId) {
+        this.lastPostId = afterPostId;
+        this.lastCommentId = afterCommentId;
+    }
+
+    public synchronized void postsCommitted(int count, long lastId) {
+        postsImported += count;
+        lastPostId = lastId;
+    }
+
+    public synchronized void commentsCommitted(int count, long lastId) {
+        commentsImported += count;
+        lastCommentId = lastId;
+    }
+
+    public synchronized void skip() {
+        skipped++;
+    }
+
+    public synchronized void complete() {
+        state = State.COMPLETED;
+        finishedAt = Instant.now();
+    }
+
+    public synchronized void fail(String message) {
+        state = State.FAILED;
+        error = message;
+        finishedAt = Instant.now();
+    }
+
+    public synchronized long imported() {
+        return postsImported + commentsImported;
+    }
+
+    public synchronized TransferProgressDto snapshot() {
+        return TransferProgressDto.builder()
+                .state(state)
+                .postsImported(postsImported)
+                .commentsImported(commentsImported)
+                .skipped(skipped)
+                .lastPostId(lastPostId)
+                .lastCommentId(lastCommentId)
+                .startedAt(startedAt.toString())
+                .finishedAt(finishedAt == null ? null : finishedAt.toString())
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,170 @@
+package com.mirakyan.blog.transfer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.mirakyan.blog.exception.InvalidImportException;
+import com.mirakyan.blog.model.Comment;
+import com.mirakyan.blog.model.Post;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Формат выгрузки: по объекту JSON на строку, сначала все посты, затем все комментарии, каждые по возрастанию id.
+ * <pre>
+ * {"type":"post","id":1,"title":"...","text":"...","createdAt":"2024-01-01T00:00:00Z","updatedAt":"...","likesCount":0,"commentsCount":2,"tags":["java"]}
+ * {"type":"comment","id":7,"postId":1,"text":"...","createdAt":"...","updatedAt":"..."}
+ * </pre>
+ * Запись и чтение идут напрямую через JsonGenerator/JsonParser, без промежуточных DTO и дерева JSON.
+ */
+public final class NdjsonTransferCodec {
+
+    public static final String TYPE_POST = "post";
+    public static final String TYPE_COMMENT = "comment";
+
+    private NdjsonTransferCodec() {
+    }
+
+    public static void writePost(JsonGenerator out, Post post) throws IOException {
+        out.writeStartObject();
+        out.writeStringField("type", TYPE_POST);
+        out.writeNumberField("id", post.getId());
+        out.writeStringField("title", post.getTitle());
+        out.writeStringField("text", post.getText());
+        writeInstant(out, "createdAt", post.getCreatedAt());
+        writeInstant(out, "updatedAt", post.getUpdatedAt());
+        out.writeNumberField("likesCount", post.getLikesCount() == null ? 0 : post.getLikesCount());
+        out.writeNumberField("commentsCount", post.getCommentsCount() == null ? 0 : post.getCommentsCount());
+        if (post.getImagePath() != null) {
+            out.writeStringField("imagePath", post.getImagePath());
+        }
+        out.writeArrayFieldStart("tags");
+        if (post.getTags() != null) {
+            for (String tag : post.getTags()) {
+                out.writeString(tag);
+            }
+        }
+        out.writeEndArray();
+        out.writeEndObject();
+        out.writeRaw('\n');
+    }
+
+    public static void writeComment(JsonGenerator out, Comment comment) throws IOException {
+        out.writeStartObject();
+        out.writeStringField("type", TYPE_COMMENT);
+        out.writeNumberField("id", comment.getId());
+        out.writeNumberField("postId", comment.getPostId());
+        out.writeStringField("text", comment.getText());
+        writeInstant(out, "createdAt", comment.getCreatedAt());
+        writeInstant(out, "updatedAt", comment.getUpdatedAt());
+        out.writeEndObject();
+        out.writeRaw('\n');
+    }
+
+    /**
+     * Следующая запись потока: {@link Post}, {@link Comment} или null в конце потока.
+     *
+     * @throws InvalidImportException если запись не разбирается или в ней нет обязательных полей
+     */
+    public static Object read(JsonParser in) throws IOException {
+        JsonToken token = in.nextToken();
+        if (token == null) {
+            return null;
+        }
+        long line = in.currentLocation().getLineNr();
+        if (token != JsonToken.START_OBJECT) {
+            throw new InvalidImportException(line, "ожидался объект JSON");
+        }
+        String type = null;
+        Long id = null;
+        Long postId = null;
+        String title = null;
+        String text = null;
+        String imagePath = null;
+        Instant createdAt = null;
+        Instant updatedAt = null;
+        int likesCount = 0;
+        int commentsCount = 0;
+        List<String> tags = new ArrayList<>();
+        while (in.nextToken() == JsonToken.FIELD_NAME) {
+            String field = in.currentName();
+            JsonToken value = in.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "type" -> type = in.getText();
+                case "id" -> id = in.getLongValue();
+                case "postId" -> postId = in.getLongValue();
+                case "title" -> title = in.getText();
+                case "text" -> text = in.getText();
+                case "imagePath" -> imagePath = in.getText();
+                case "createdAt" -> createdAt = parseInstant(in, line);
+                case "updatedAt" -> updatedAt = parseInstant(in, line);
+                case "likesCount" -> likesCount = in.getIntValue();
+                case "commentsCount" -> commentsCount = in.getIntValue();
+                case "tags" -> {
+                    if (value != JsonToken.START_ARRAY) {
+                        throw new InvalidImportException(line, "tags должен быть массивом");
+                    }
+                    while (in.nextToken() != JsonToken.END_ARRAY) {
+                        tags.add(in.getText());
+                    }
+                }
+                // неизвестные поля пропускаем — формат можно расширять без поломки старых загрузчиков
+                default -> in.skipChildren();
+            }
+        }
+        if (id == null) {
+            throw new InvalidImportException(line, "нет id");
+        }
+        Instant now = Instant.now();
+        if (TYPE_POST.equals(type)) {
+            if (title == null || text == null) {
+                throw new InvalidImportException(line, "у поста нет title или text");
+            }
+            return Post.builder()
+                    .id(id)
+                    .title(title)
+                    .text(text)
+                    .createdAt(createdAt == null ? now : createdAt)
+                    .updatedAt(updatedAt == null ? now : updatedAt)
+                    .likesCount(likesCount)
+                    .commentsCount(commentsCount)
+                    .imagePath(imagePath)
+                    .tags(tags.toArray(String[]::new))
+                    .build();
+        }
+        if (TYPE_COMMENT.equals(type)) {
+            if (postId == null || text == null) {
+                throw new InvalidImportException(line, "у комментария нет postId или text");
+            }
+            return Comment.builder()
+                    .id(id)
+                    .postId(postId)
+                    .text(text)
+                    .createdAt(createdAt == null ? now : createdAt)
+                    .updatedAt(updatedAt == null ? now : updatedAt)
+                    .build();
+        }
+        throw new InvalidImportException(line, "неизвестный type '" + type + "'");
+    }
+
+    private static void writeInstant(JsonGenerator out, String field, Instant value) throws IOException {
+        if (value != null) {
+            out.writeStringField(field, value.toString());
+        }
+    }
+
+    private static Instant parseInstant(JsonParser in, long line) throws IOException {
+        try {
+            return Instant.parse(in.getText());
+        } catch (DateTimeParseException e) {
+            throw new InvalidImportException(line, "некорректная дата '" + in.getText() + "'");
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package com.mirakyan.blog.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Сжатие ответов gzip/deflate. Подключается в web.xml через DelegatingFilterProxy, поэтому настраивается из
+ * application.properties как обычный бин.
+ * <p>
+ * Кодировка выбирается по Accept-Encoding (с учётом q=0). Первые {@code min-size} байт ответа копятся в буфере:
+ * если ответ уместился — уходит как есть, с Content-Length. Сжимаются только типы из allow-list, поэтому
+ * изображения (уже сжатые) и ответы с Content-Encoding/Content-Range проходят без изменений. Gzip-обёртка
+ * (заголовок, CRC32, длина) пишется вручную поверх «сырого» Deflater из пула. Для потоковых ответов flush()
+ * делает SYNC_FLUSH, и клиент получает строки сразу, а не по завершении ответа.
+ */
+@Component
+public class CompressionFilter extends OncePerRequestFilter implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CompressionFilter.class);
+
+    private static final String RESPONSE_ATTRIBUTE = CompressionFilter.class.getName() + ".RESPONSE";
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private enum Encoding {
+        GZIP("gzip"), DEFLATE("deflate");
+
+        private final String token;
+
+        Encoding(String token) {
+            this.token = token;
+        }
+    }
+
+    private final boolean enabled;
+    private final int minSize;
+    private final List<MediaType> mimeTypes;
+    private final CompressionPool pool;
+
+    public CompressionFilter(@Value("${compression.enabled:true}") boolean enabled,
+                             @Value("${compression.min-size:1024}") int minSize,
+                             @Value("${compression.level:5}") int level,
+                             @Value("${compression.mime-types:application/json,application/x-ndjson,text/html,text/plain,text/css,application/javascript,application/xml}") String mimeTypes,
+                             @Value("${compression.pool-size:32}") int poolSize,
+                             @Value("${compression.buffer-size:8192}") int bufferSize) {
+        this.enabled = enabled;
+        this.minSize = Math.max(0, minSize);
+        this.mimeTypes = Arrays.stream(mimeTypes.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(MediaType::parseMediaType)
+                .toList();
+        // буфер вмещает порог целиком, чтобы решение о сжатии принималось до первой записи в сокет
+        this.pool = new CompressionPool(level, Math.max(bufferSize, this.minSize + 1), Math.max(1, poolSize));
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // при асинхронной отдаче (StreamingResponseBody) ответ дописывается после повторной диспетчеризации
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CompressingResponse compressing = (CompressingResponse) request.getAttribute(RESPONSE_ATTRIBUTE);
+        if (compressing == null) {
+            Encoding encoding = enabled && !"HEAD".equals(request.getMethod())
+                    ? negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING))
+                    : null;
+            if (encoding == null) {
+                chain.doFilter(request, response);
+                return;
+            }
+            compressing = new CompressingResponse(request, response, encoding);
+            request.setAttribute(RESPONSE_ATTRIBUTE, compressing);
+        }
+        boolean completed = false;
+        try {
+            chain.doFilter(request, compressing);
+            completed = true;
+        } finally {
+            if (!completed) {
+                compressing.release();
+            } else if (!request.isAsyncStarted()) {
+                compressing.finish();
+            }
+        }
+    }
+
+    static Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        double gzip = 0;
+        double deflate = 0;
+        double any = 0;
+        boolean gzipListed = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            switch (coding) {
+                case "gzip", "x-gzip" -> {
+                    gzip = Math.max(gzip, q);
+                    gzipListed = true;
+                }
+                case "deflate" -> deflate = Math.max(deflate, q);
+                case "*" -> any = q;
+                default -> {
+                }
+            }
+        }
+        if (!gzipListed) {
+            gzip = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return Encoding.GZIP;
+        }
+        return deflate > 0 ? Encoding.DEFLATE : null;
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            MediaType type = MediaType.parseMediaType(contentType);
+            return mimeTypes.stream().anyMatch(allowed -> allowed.includes(type));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pool.close();
+    }
+
+    private enum State {BUFFERING, PASSTHROUGH, COMPRESSING, FINISHED}
+
+    /**
+     * Обёртка ответа: копит начало тела, решает, сжимать ли, и дальше пишет либо напрямую, либо через Deflater.
+     */
+    private final class CompressingResponse extends HttpServletResponseWrapper {
+
+        private final HttpServletRequest request;
+        private final Encoding encoding;
+        private final Stream stream = new Stream();
+        private State state = State.BUFFERING;
+        private byte[] buffer;
+        private int buffered;
+        private long contentLength = -1;
+        private PrintWriter writer;
+
+        private Deflater deflater;
+        private byte[] deflateBuffer;
+        private CRC32 crc;
+        private OutputStream target;
+
+        CompressingResponse(HttpServletRequest request, HttpServletResponse response, Encoding encoding) {
+            super(response);
+            this.request = request;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(stream, Charset.forName(getCharacterEncoding())));
+            }
+            return writer;
+        }
+
+        // Content-Length приложения верен только для несжатого тела — придерживаем его до решения
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (state == State.BUFFERING) {
+                contentLength = len;
+            } else if (state == State.PASSTHROUGH) {
+                super.setContentLengthLong(len);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value == null ? -1 : Long.parseLong(value));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value == null ? -1 : Long.parseLong(value));
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value);
+            } else {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            stream.flush();
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (state == State.BUFFERING) {
+                buffered = 0;
+            }
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            if (state == State.BUFFERING) {
+                buffered = 0;
+                contentLength = -1;
+            }
+            super.reset();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            release();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            release();
+            super.sendError(sc);
+        }
+
+        private void write(byte[] b, int off, int len) throws IOException {
+            switch (state) {
+                case BUFFERING -> {
+                    if (buffer == null) {
+                        buffer = pool.acquireBuffer();
+                    }
+                    if (buffered + len <= minSize) {
+                        System.arraycopy(b, off, buffer, buffered, len);
+                        buffered += len;
+                        return;
+                    }
+                    decide(true);
+                    write(b, off, len);
+                }
+                case PASSTHROUGH -> target.write(b, off, len);
+                case COMPRESSING -> deflate(b, off, len);
+                case FINISHED -> throw new IOException("Response already completed");
+            }
+        }
+
+        /**
+         * Выбор режима при выходе за порог ({@code large}) или на flush/завершении.
+         */
+        private void decide(boolean large) throws IOException {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            boolean compressibleType = isCompressible(getContentType());
+            if (compressibleType) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            int status = getStatus();
+            boolean compress = large && compressibleType
+                    && status >= 200 && status != HttpServletResponse.SC_NO_CONTENT
+                    && status != HttpServletResponse.SC_PARTIAL_CONTENT && status != HttpServletResponse.SC_NOT_MODIFIED
+                    && !containsHeader(HttpHeaders.CONTENT_ENCODING) && !containsHeader(HttpHeaders.CONTENT_RANGE);
+            target = response.getOutputStream();
+            if (compress) {
+                state = State.COMPRESSING;
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.token);
+                String etag = response.getHeader(HttpHeaders.ETAG);
+                if (etag != null && !etag.startsWith("W/")) {
+                    // другое представление тех же данных: сильный валидатор становится слабым (If-None-Match сравнивает слабо)
+                    response.setHeader(HttpHeaders.ETAG, "W/" + etag);
+                }
+                boolean nowrap = encoding == Encoding.GZIP;
+                deflater = pool.acquireDeflater(nowrap);
+                deflateBuffer = pool.acquireBuffer();
+                if (nowrap) {
+                    crc = new CRC32();
+                    target.write(GZIP_HEADER);
+                }
+            } else {
+                state = State.PASSTHROUGH;
+                if (contentLength >= 0) {
+                    response.setContentLengthLong(contentLength);
+                } else if (!large) {
+                    response.setContentLength(buffered);
+                }
+            }
+            byte[] pending = buffer;
+            int pendingLength = buffered;
+            buffered = 0;
+            if (pending != null) {
+                if (pendingLength > 0) {
+                    write(pending, 0, pendingLength);
+                }
+                buffer = null;
+                pool.releaseBuffer(pending);
+            }
+        }
+
+        private void deflate(byte[] b, int off, int len) throws IOException {
+            if (crc != null) {
+                crc.update(b, off, len);
+            }
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                int n = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.NO_FLUSH);
+                if (n > 0) {
+                    target.write(deflateBuffer, 0, n);
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (state == State.BUFFERING) {
+                if (!request.isAsyncStarted()) {
+                    // конвертеры сообщений делают flush после каждой записи — для обычного ответа ждём порога
+                    return;
+                }
+                // потоковая отдача: сжимаем сразу, не дожидаясь порога
+                decide(contentLength != 0);
+            }
+            if (state == State.COMPRESSING) {
+                int n;
+                do {
+                    n = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.SYNC_FLUSH);
+                    target.write(deflateBuffer, 0, n);
+                } while (n == deflateBuffer.length);
+            }
+            if (state != State.FINISHED) {
+                target.flush();
+            }
+        }
+
+        void finish() throws IOException {
+            if (state == State.FINISHED) {
+                return;
+            }
+            try {
+                if (writer != null) {
+                    writer.flush();
+                }
+                if (state == State.BUFFERING) {
+                    decide(false);
+                }
+                if (state == State.COMPRESSING) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        int n = deflater.deflate(deflateBuffer, 0, deflateBuffer.length);
+                        target.write(deflateBuffer, 0, n);
+                    }
+                    if (crc != null) {
+                        writeIntLe(target, (int) crc.getValue());
+                        writeIntLe(target, (int) deflater.getBytesRead());
+                    }
+                }
+            } finally {
+                release();
+            }
+        }
+
+        /**
+         * Возвращает ресурсы в пул; дальнейшие записи отклоняются.
+         */
+        void release() {
+            state = State.FINISHED;
+            if (deflater != null) {
+                pool.releaseDeflater(deflater, encoding == Encoding.GZIP);
+                deflater = null;
+            }
+            if (deflateBuffer != null) {
+                pool.releaseBuffer(deflateBuffer);
+                deflateBuffer = null;
+            }
+            if (buffer != null) {
+                pool.releaseBuffer(buffer);
+                buffer = null;
+            }
+        }
+
+        private static void writeIntLe(OutputStream out, int value) throws IOException {
+            out.write(value & 0xff);
+            out.write((value >>> 8) & 0xff);
+            out.write((value >>> 16) & 0xff);
+            out.write((value >>> 24) & 0xff);
+        }
+
+        private final class Stream extends ServletOutputStream {
+
+            private final byte[] single = new byte[1];
+
+            @Override
+            public void write(int b) throws IOException {
+                single[0] = (byte) b;
+                CompressingResponse.this.write(single, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                CompressingResponse.this.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                CompressingResponse.this.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                finish();
+            }
+
+            @Override
+            public boolean isReady() {
+                try {
+                    return getResponse().getOutputStream().isReady();
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                try {
+                    getResponse().getOutputStream().setWriteListener(listener);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void initFilterBean() {
+        log.info("Response compression {}, minSize={}, types={}", enabled ? "enabled" : "disabled", minSize, mimeTypes);
+    }
+}
@@ -0,0 +1,67 @@
+package com.mirakyan.blog.web;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Пул Deflater'ов и буферов для сжатия ответов. Deflater держит нативную память (~256 КБ на экземпляр), и создание
+ * нового на каждый ответ — это и malloc, и лишняя работа финализации; буферы переиспользуются, чтобы сжатие не
+ * добавляло мусора в кучу. Пул ограничен: при пиковой нагрузке лишнее создаётся и закрывается как обычно.
+ */
+public class CompressionPool {
+
+    private final int level;
+    private final int bufferSize;
+    // nowrap = true — «сырой» deflate для gzip (заголовок и CRC пишем сами), false — zlib-формат для Content-Encoding: deflate
+    private final BlockingQueue<Deflater> rawDeflaters;
+    private final BlockingQueue<Deflater> zlibDeflaters;
+    private final BlockingQueue<byte[]> buffers;
+
+    public CompressionPool(int level, int bufferSize, int capacity) {
+        this.level = level;
+        this.bufferSize = bufferSize;
+        this.rawDeflaters = new ArrayBlockingQueue<>(capacity);
+        this.zlibDeflaters = new ArrayBlockingQueue<>(capacity);
+        this.buffers = new ArrayBlockingQueue<>(capacity * 2);
+    }
+
+    public Deflater acquireDeflater(boolean nowrap) {
+        Deflater deflater = (nowrap ? rawDeflaters : zlibDeflaters).poll();
+        return deflater != null ? deflater : new Deflater(level, nowrap);
+    }
+
+    public void releaseDeflater(Deflater deflater, boolean nowrap) {
+        deflater.reset();
+        if (!(nowrap ? rawDeflaters : zlibDeflaters).offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    public byte[] acquireBuffer() {
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    public void releaseBuffer(byte[] buffer) {
+        buffers.offer(buffer);
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Освобождает нативную память всех Deflater'ов пула.
+     */
+    public void close() {
+        Deflater deflater;
+        while ((deflater = rawDeflaters.poll()) != null) {
+            deflater.end();
+        }
+        while ((deflater = zlibDeflaters.poll()) != null) {
+            deflater.end();
+        }
+        buffers.clear();
+    }
+}
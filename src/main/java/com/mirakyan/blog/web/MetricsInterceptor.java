@@ -0,0 +1,45 @@
+package com.mirakyan.blog.web;
+
+import com.mirakyan.blog.metrics.MetricsRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Замеряет запросы к контроллерам по шаблону маршрута ({@code /api/posts/{id}}), а не по фактическому URI.
+ * Обработчики возвращают Callable: первый проход заканчивается {@link #afterConcurrentHandlingStarted}, а
+ * afterCompletion вызывается один раз — после асинхронной диспетчеризации, поэтому время старта хранится
+ * в атрибуте запроса и переживает повторный preHandle.
+ */
+public class MetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = MetricsInterceptor.class.getName() + ".start";
+
+    private final MetricsRegistry metrics;
+
+    public MetricsInterceptor(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        // необработанное исключение ещё не успело превратиться в статус ответа
+        int status = ex != null && response.getStatus() < 400 ? 500 : response.getStatus();
+        metrics.recordRequest(request.getMethod(), pattern == null ? "UNMATCHED" : pattern.toString(), status,
+                System.nanoTime() - (Long) start);
+    }
+}
@@ -0,0 +1,77 @@
+package com.mirakyan.blog.web;
+
+import com.mirakyan.blog.metrics.SqlTrace;
+import com.mirakyan.blog.metrics.SqlTracer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Открывает SQL-трассу запроса и переносит её между потоками. Трасса лежит в атрибуте запроса: контейнерный
+ * поток привязывает её в preHandle, поток исполнителя Callable — в {@link #preProcess}, и отвязывает в
+ * {@link #postProcess}. Запрос завершается в afterCompletion, после асинхронной диспетчеризации.
+ */
+public class SqlTraceInterceptor implements AsyncHandlerInterceptor, CallableProcessingInterceptor {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    private static final String TRACE_ATTRIBUTE = SqlTraceInterceptor.class.getName() + ".trace";
+
+    private final SqlTracer tracer;
+
+    public SqlTraceInterceptor(SqlTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlTrace trace = (SqlTrace) request.getAttribute(TRACE_ATTRIBUTE);
+        if (trace == null) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            trace = tracer.start(request.getHeader(REQUEST_ID_HEADER), request.getMethod(),
+                    pattern == null ? request.getRequestURI() : pattern.toString());
+            if (trace == null) {
+                return true;
+            }
+            request.setAttribute(TRACE_ATTRIBUTE, trace);
+            response.setHeader(REQUEST_ID_HEADER, trace.getRequestId());
+        }
+        SqlTrace.bind(trace);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // контейнерный поток уходит обслуживать другие запросы
+        SqlTrace.unbind();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        SqlTrace.unbind();
+        SqlTrace trace = (SqlTrace) request.getAttribute(TRACE_ATTRIBUTE);
+        if (trace != null) {
+            request.removeAttribute(TRACE_ATTRIBUTE);
+            tracer.finish(trace, ex != null && response.getStatus() < 400 ? 500 : response.getStatus());
+        }
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        Object trace = request.getAttribute(TRACE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (trace != null) {
+            SqlTrace.bind((SqlTrace) trace);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        SqlTrace.unbind();
+    }
+}
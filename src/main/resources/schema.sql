@@ -3,6 +3,8 @@ CREATE TABLE IF NOT EXISTS posts (
     id BIGSERIAL PRIMARY KEY,
     title VARCHAR(255) NOT NULL,
     text TEXT NOT NULL,
+    -- Начало text для ленты (129 символов), чтобы запросы ленты не читали длинные тела постов
+    preview VARCHAR(129),
     created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
     updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
     likes_count INTEGER NOT NULL DEFAULT 0,
@@ -12,6 +14,9 @@ CREATE TABLE IF NOT EXISTS posts (
     tags TEXT[] DEFAULT '{}'::text[]
 );
 
+-- Превью для таблиц, созданных до его появления; старые строки заполняет PreviewBackfill пачками при старте
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS preview VARCHAR(129);
+
 -- Создание таблицы комментариев
 CREATE TABLE IF NOT EXISTS comments (
     id BIGSERIAL PRIMARY KEY,
@@ -21,6 +26,14 @@ CREATE TABLE IF NOT EXISTS comments (
     updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
 );
 
+-- Шарды счётчика лайков (likes.sharding.enabled): сумма шардов прибавляется к posts.likes_count
+CREATE TABLE IF NOT EXISTS post_like_shards (
+    post_id BIGINT NOT NULL REFERENCES posts(id) ON DELETE CASCADE,
+    shard SMALLINT NOT NULL,
+    count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (post_id, shard)
+);
+
 -- Создание индексов для оптимизации запросов
 CREATE INDEX IF NOT EXISTS idx_posts_created_at ON posts(created_at DESC);
 CREATE INDEX IF NOT EXISTS idx_posts_title ON posts USING gin(to_tsvector('russian', title));
@@ -28,3 +41,10 @@ CREATE INDEX IF NOT EXISTS idx_posts_title ON posts USING gin(to_tsvector('russi
 CREATE INDEX IF NOT EXISTS idx_posts_tags ON posts USING gin(tags);
 CREATE INDEX IF NOT EXISTS idx_comments_post_id ON comments(post_id);
 CREATE INDEX IF NOT EXISTS idx_comments_created_at ON comments(post_id, created_at);
+-- Проверка ссылок на файлы хранилища изображений при сборке мусора
+CREATE INDEX IF NOT EXISTS idx_posts_image_path ON posts(image_path);
+-- Составной ключ ленты для keyset-пагинации (created_at, id)
+CREATE INDEX IF NOT EXISTS idx_posts_created_at_id ON posts(created_at DESC, id DESC);
+-- Поиск по произвольной подстроке заголовка (LOWER(title) LIKE '%...%') через триграммы
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_posts_title_trgm ON posts USING gin (LOWER(title) gin_trgm_ops);
@@ -2,19 +2,25 @@ package com.mirakyan.blog.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mirakyan.blog.dto.CommentDto;
+import com.mirakyan.blog.dto.CommentsPageDto;
 import com.mirakyan.blog.service.CommentService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -22,9 +28,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 class CommentControllerTest {
 
     private final CommentService commentService = Mockito.mock(CommentService.class);
-    private final CommentController controller = new CommentController(commentService);
-    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
     private final ObjectMapper mapper = new ObjectMapper();
+    private final CommentController controller = new CommentController(commentService, mapper);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
 
     @Test
     @DisplayName("GET /api/posts/{postId}/comments возвращает список")
@@ -37,7 +43,7 @@ class CommentControllerTest {
                         .postId(1L)
                         .build()
         ));
-        mockMvc.perform(get("/api/posts/1/comments"))
+        performAsync(get("/api/posts/1/comments"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].id").value(5));
     }
@@ -58,7 +64,7 @@ class CommentControllerTest {
                 .postId(1L)
                 .build();
 
-        mockMvc.perform(post("/api/posts/1/comments")
+        performAsync(post("/api/posts/1/comments")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(mapper.writeValueAsString(request)))
                 .andExpect(status().isCreated())
@@ -83,11 +89,53 @@ class CommentControllerTest {
                 .postId(2L)
                 .build();
 
-        mockMvc.perform(put("/api/posts/2/comments/3")
+        performAsync(put("/api/posts/2/comments/3")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(mapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.text").value("Updated"));
     }
-}
 
+    @Test
+    @DisplayName("GET /api/posts/{postId}/comments?limit= возвращает страницу с курсором")
+    void getCommentsPage() throws Exception {
+        when(commentService.getCommentsPage(1L, "abc", 2)).thenReturn(CommentsPageDto.builder()
+                .comments(List.of(CommentDto.builder().id(7L).text("Hi").postId(1L).build()))
+                .hasNext(true)
+                .nextCursor("next")
+                .build());
+
+        performAsync(get("/api/posts/1/comments").param("limit", "2").param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments[0].id").value(7))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    @DisplayName("GET /api/posts/{postId}/comments с Accept: application/x-ndjson — по объекту на строку")
+    @SuppressWarnings("unchecked")
+    void streamComments() throws Exception {
+        doAnswer(inv -> {
+            Consumer<CommentDto> consumer = inv.getArgument(1);
+            consumer.accept(CommentDto.builder().id(1L).text("a").postId(1L).build());
+            consumer.accept(CommentDto.builder().id(2L).text("b").postId(1L).build());
+            return null;
+        }).when(commentService).streamCommentsByPostId(eq(1L), any(Consumer.class));
+
+        MvcResult started = mockMvc.perform(get("/api/posts/1/comments").accept(CommentController.NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CommentController.NDJSON))
+                .andExpect(content().string("{\"id\":1,\"text\":\"a\",\"postId\":1}\n{\"id\":2,\"text\":\"b\",\"postId\":1}\n"));
+    }
+
+    // Обработчики возвращают Callable: ответ появляется только после асинхронной диспетчеризации
+    private ResultActions performAsync(RequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+}
@@ -2,15 +2,24 @@ package com.mirakyan.blog.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mirakyan.blog.dto.PostDto;
+import com.mirakyan.blog.dto.PostsBatchDto;
 import com.mirakyan.blog.dto.PostsResponseDto;
+import com.mirakyan.blog.image.ImageFile;
 import com.mirakyan.blog.service.PostService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,9 +49,9 @@ class PostControllerTest {
                         .build()))
                 .hasPrev(false).hasNext(false).lastPage(1)
                 .build();
-        when(postService.getAllPosts(eq("") , eq(1), eq(5))).thenReturn(dto);
+        when(postService.getAllPosts(eq("") , eq(1), eq(5), eq(true))).thenReturn(dto);
 
-        mockMvc.perform(get("/api/posts")
+        performAsync(get("/api/posts")
                         .param("search","" )
                         .param("pageNumber","1")
                         .param("pageSize","5"))
@@ -51,11 +60,31 @@ class PostControllerTest {
                 .andExpect(jsonPath("$.lastPage").value(1));
     }
 
+    @Test
+    @DisplayName("GET /api/posts с параметром cursor переключается на keyset-пагинацию")
+    void getPostsByCursor() throws Exception {
+        PostsResponseDto dto = PostsResponseDto.builder()
+                .posts(List.of())
+                .hasPrev(true).hasNext(true)
+                .nextCursor("next").prevCursor("prev")
+                .build();
+        when(postService.getPostsByCursor(eq(""), eq("abc"), eq(5))).thenReturn(dto);
+
+        performAsync(get("/api/posts")
+                        .param("search", "")
+                        .param("cursor", "abc")
+                        .param("pageSize", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.prevCursor").value("prev"))
+                .andExpect(jsonPath("$.lastPage").doesNotExist());
+    }
+
     @Test
     @DisplayName("GET /api/posts/{id} 404 если не найден")
     void getPostNotFound() throws Exception {
         when(postService.getPostById(99L)).thenReturn(Optional.empty());
-        mockMvc.perform(get("/api/posts/99"))
+        performAsync(get("/api/posts/99"))
                 .andExpect(status().isNotFound());
     }
 
@@ -78,20 +107,92 @@ class PostControllerTest {
                 .build();
 
         when(postService.createPost(any(PostDto.class))).thenReturn(response);
-        mockMvc.perform(post("/api/posts")
+        performAsync(post("/api/posts")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.id").value(10));
     }
 
+    @Test
+    @DisplayName("POST /api/posts/batch создаёт пакет, а ошибка в любом элементе отклоняет весь запрос")
+    void createPostsBatch() throws Exception {
+        PostDto valid = PostDto.builder().title("A").text("Body").tags(List.of()).build();
+        when(postService.createPosts(anyList())).thenReturn(List.of(PostDto.builder().id(1L).title("A").build()));
+
+        performAsync(post("/api/posts/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(PostsBatchDto.builder().posts(List.of(valid)).build())))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$[0].id").value(1));
+
+        PostDto invalid = PostDto.builder().title("").text("Body").tags(List.of()).build();
+        mockMvc.perform(post("/api/posts/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(PostsBatchDto.builder().posts(List.of(valid, invalid)).build())))
+                .andExpect(status().isBadRequest());
+        Mockito.verify(postService, Mockito.times(1)).createPosts(anyList());
+    }
+
     @Test
     @DisplayName("POST /api/posts/{id}/likes инкрементирует лайки")
     void incrementLikes() throws Exception {
         when(postService.incrementLikes(1L)).thenReturn(Optional.of(5));
-        mockMvc.perform(post("/api/posts/1/likes"))
+        performAsync(post("/api/posts/1/likes"))
                 .andExpect(status().isOk())
                 .andExpect(content().string("5"));
     }
-}
 
+    @Test
+    @DisplayName("GET /api/posts/{id}/image: тип по сигнатуре, Range -> 206, If-None-Match -> 304")
+    void getPostImage(@TempDir Path dir) throws Exception {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 1, 2, 3, 4};
+        Path file = Files.write(dir.resolve("post-1.bin"), png);
+        Instant modified = Instant.parse("2024-01-01T00:00:00Z");
+        when(postService.existsById(1L)).thenReturn(true);
+        when(postService.getImage(1L, null)).thenReturn(Optional.of(new ImageFile(file, png.length, modified, "image/png", "\"v1\"")));
+
+        performAsync(get("/api/posts/1/image"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(header().string("ETag", "\"v1\""))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().exists("Cache-Control"))
+                .andExpect(content().bytes(png));
+
+        performAsync(get("/api/posts/1/image").header("Range", "bytes=8-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 8-11/12"))
+                .andExpect(content().bytes(new byte[]{1, 2, 3, 4}));
+
+        performAsync(get("/api/posts/1/image").header("If-None-Match", "\"v1\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("GET /api/posts/{id}: совпавший If-None-Match -> 304 без загрузки поста, у 200 ETag загруженной версии")
+    void getPostByIdNotModified() throws Exception {
+        when(postService.getPostETag(1L)).thenReturn(Optional.of("\"p1-v\""));
+        // пост изменился между запросом версии и загрузкой: ответ несёт ETag загруженного тела
+        when(postService.getPostWithETag(1L)).thenReturn(Optional.of(
+                new PostService.PostWithETag(PostDto.builder().id(1L).title("T").build(), "\"p1-v2\"")));
+
+        performAsync(get("/api/posts/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"p1-v2\""))
+                .andExpect(jsonPath("$.id").value(1));
+
+        performAsync(get("/api/posts/1").header("If-None-Match", "\"p1-v\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        Mockito.verify(postService, Mockito.times(1)).getPostWithETag(1L);
+    }
+
+    // Обработчики возвращают Callable: ответ появляется только после асинхронной диспетчеризации
+    private ResultActions performAsync(RequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+}
@@ -0,0 +1,47 @@
+package com.mirakyan.blog.image;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotImageCacheTest {
+
+    @Test
+    @DisplayName("файл отображается в память только после порога обращений и отдаётся без чтения с диска")
+    void admitsHotImagesByFrequency(@TempDir Path dir) throws Exception {
+        byte[] bytes = "hot image bytes".getBytes();
+        Path file = Files.write(dir.resolve("hot"), bytes);
+        ImageFile image = new ImageFile(file, bytes.length, Instant.now(), "image/png", "\"hot\"");
+        HotImageCache cache = new HotImageCache(true, 1024, 1024, 3);
+
+        assertThat(cache.admit(image).content()).isNull();
+        assertThat(cache.admit(image).content()).isNull();
+        assertThat(cache.get(file)).isEmpty();
+        assertThat(cache.admit(image).content()).isNotNull();
+
+        ImageFile hot = cache.get(file).orElseThrow();
+        try (InputStream in = new MappedImageResource(hot.content(), "hot").getInputStream()) {
+            assertThat(in.readAllBytes()).isEqualTo(bytes);
+        }
+        assertThat(cache.stats().getResidentBytes()).isEqualTo(bytes.length);
+        assertThat(cache.stats().getHits()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("файлы больше лимита не кэшируются")
+    void skipsLargeFiles(@TempDir Path dir) throws Exception {
+        Path file = Files.write(dir.resolve("big"), new byte[2048]);
+        ImageFile image = new ImageFile(file, 2048, Instant.now(), "image/png", "\"big\"");
+        HotImageCache cache = new HotImageCache(true, 4096, 1024, 1);
+
+        assertThat(cache.admit(image).content()).isNull();
+        assertThat(cache.stats().getResidentBytes()).isZero();
+    }
+}
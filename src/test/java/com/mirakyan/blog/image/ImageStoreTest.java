@@ -0,0 +1,69 @@
+package com.mirakyan.blog.image;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private NamedParameterJdbcTemplate jdbc;
+    private ImageStore store;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:images-test;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        store = new ImageStore(jdbc, dir.toString(), 0, 3600);
+    }
+
+    @Test
+    @DisplayName("одинаковое содержимое хранится один раз по пути ab/cd/<sha256>")
+    void storeDeduplicates() throws Exception {
+        String first = store.store(new ByteArrayInputStream("image".getBytes()));
+        String second = store.store(new ByteArrayInputStream("image".getBytes()));
+
+        assertThat(first).isEqualTo(second).matches("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}");
+        assertThat(first).endsWith("6105d6cc76af400325e94d588ce511be5bfdbb73b437dc51eca43917d7a43e3d");
+        assertThat(Files.readString(store.resolve(first))).isEqualTo("image");
+        try (var tmp = Files.list(dir.resolve("tmp"))) {
+            assertThat(tmp).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("GC удаляет старые файлы без ссылок и не трогает используемые и свежие")
+    void collectGarbage() throws Exception {
+        String referenced = store.store(new ByteArrayInputStream("used".getBytes()));
+        String orphan = store.store(new ByteArrayInputStream("orphan".getBytes()));
+        String fresh = store.store(new ByteArrayInputStream("fresh".getBytes()));
+        jdbc.update("INSERT INTO posts (title, text, created_at, updated_at, likes_count, comments_count, image_path) " +
+                "VALUES ('t', 't', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0, 0, :path)", Map.of("path", referenced));
+        FileTime old = FileTime.from(Instant.now().minusSeconds(7200));
+        Files.setLastModifiedTime(store.resolve(referenced), old);
+        Files.setLastModifiedTime(store.resolve(orphan), old);
+
+        assertThat(store.collectGarbage()).isEqualTo(1);
+        assertThat(store.resolve(referenced)).exists();
+        assertThat(store.resolve(orphan)).doesNotExist();
+        assertThat(store.resolve(fresh)).exists();
+    }
+}
@@ -0,0 +1,71 @@
+package com.mirakyan.blog.image;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageVariantsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("вариант строится по большей стороне, запрос размера выбирает ближайший не меньший")
+    void buildAndFindVariant() throws Exception {
+        ImageStore store = new ImageStore(null, dir.toString(), 0, 3600);
+        ImageVariants variants = new ImageVariants(store, "128,512", 1, 10, 40_000_000);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_ARGB), "png", png);
+        String key = store.store(new ByteArrayInputStream(png.toByteArray()));
+
+        variants.generateAsync(key);
+        assertThat(variants.awaitIdle(10_000)).isTrue();
+
+        Path variant = variants.find(key, 100).orElseThrow();
+        BufferedImage scaled = ImageIO.read(variant.toFile());
+        assertThat(scaled.getWidth()).isEqualTo(128);
+        assertThat(scaled.getHeight()).isEqualTo(64);
+        assertThat(ImageTypeDetector.detect(variant)).isEqualTo("image/png");
+        assertThat(variants.find(key, 2000)).isEmpty();
+        variants.destroy();
+    }
+
+    @Test
+    @DisplayName("пока вариант не построен, find заказывает его один раз и отдаёт пусто")
+    void findSchedulesMissingVariant() throws Exception {
+        ImageStore store = new ImageStore(null, dir.toString(), 0, 3600);
+        ImageVariants variants = new ImageVariants(store, "128", 1, 10, 40_000_000);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB), "png", png);
+        String key = store.store(new ByteArrayInputStream(png.toByteArray()));
+
+        assertThat(variants.find(key, 100)).isEmpty(); // ещё не построен — вызывающий отдаст оригинал
+        assertThat(variants.find(key, 100)).isEmpty();
+        assertThat(variants.awaitIdle(10_000)).isTrue();
+        assertThat(variants.find(key, 100)).isPresent();
+        variants.destroy();
+    }
+
+    @Test
+    @DisplayName("изображение больше images.variants.max-pixels не декодируется, вариантов нет")
+    void skipsOversizedImage() throws Exception {
+        ImageStore store = new ImageStore(null, dir.toString(), 0, 3600);
+        ImageVariants variants = new ImageVariants(store, "128", 1, 10, 100 * 100);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB), "png", png);
+        String key = store.store(new ByteArrayInputStream(png.toByteArray()));
+
+        variants.generateAsync(key);
+        assertThat(variants.awaitIdle(10_000)).isTrue();
+        assertThat(variants.find(key, 100)).isEmpty();
+        variants.destroy();
+    }
+}
@@ -3,10 +3,13 @@ package com.mirakyan.blog.integration;
 import com.mirakyan.blog.config.DatabaseConfiguration;
 import com.mirakyan.blog.config.WebConfiguration;
 import com.mirakyan.blog.dto.CommentDto;
+import com.mirakyan.blog.dto.CommentsPageDto;
 import com.mirakyan.blog.dto.PostDto;
 import com.mirakyan.blog.dto.PostsResponseDto;
+import com.mirakyan.blog.repository.impl.LikeWriteBehindBuffer;
 import com.mirakyan.blog.service.CommentService;
 import com.mirakyan.blog.service.PostService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,6 +20,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -34,6 +38,16 @@ class BlogIntegrationTest {
     @Autowired
     private CommentService commentService;
 
+    @Autowired
+    private LikeWriteBehindBuffer likeBuffer;
+
+    // schema.sql пересоздаёт таблицы и id снова начинаются с 1: несброшенные лайки прошлого теста
+    // иначе достались бы новому посту с тем же id. Сброс в пустые таблицы их просто отбрасывает.
+    @BeforeEach
+    void discardPendingLikes() {
+        likeBuffer.flush();
+    }
+
     @Test
     @DisplayName("H2: end-to-end сценарий посты + пагинация + лайк + комментарий")
     void fullScenario() {
@@ -74,4 +88,111 @@ class BlogIntegrationTest {
         PostDto refreshed2 = postService.getPostById(p1.getId()).orElseThrow();
         assertThat(refreshed2.getCommentsCount()).isZero();
     }
+
+    @Test
+    @DisplayName("H2: keyset-пагинация ленты вперёд и назад по курсорам")
+    void cursorPagination() {
+        for (int i = 1; i <= 5; i++) {
+            postService.createPost(PostDto.builder()
+                    .title("Cursor " + i)
+                    .text("Body" + i)
+                    .tags(List.of("cursor"))
+                    .build());
+        }
+
+        PostsResponseDto first = postService.getPostsByCursor("#cursor", "", 2);
+        assertThat(first.getPosts()).extracting(PostDto::getTitle).containsExactly("Cursor 5", "Cursor 4");
+        assertThat(first.isHasPrev()).isFalse();
+        assertThat(first.getPrevCursor()).isNull();
+        assertThat(first.getLastPage()).isNull();
+
+        PostsResponseDto second = postService.getPostsByCursor("#cursor", first.getNextCursor(), 2);
+        assertThat(second.getPosts()).extracting(PostDto::getTitle).containsExactly("Cursor 3", "Cursor 2");
+        assertThat(second.isHasPrev()).isTrue();
+
+        PostsResponseDto third = postService.getPostsByCursor("#cursor", second.getNextCursor(), 2);
+        assertThat(third.getPosts()).extracting(PostDto::getTitle).containsExactly("Cursor 1");
+        assertThat(third.isHasNext()).isFalse();
+        assertThat(third.getNextCursor()).isNull();
+
+        PostsResponseDto back = postService.getPostsByCursor("#cursor", third.getPrevCursor(), 2);
+        assertThat(back.getPosts()).extracting(PostDto::getTitle).containsExactly("Cursor 3", "Cursor 2");
+        assertThat(back.isHasPrev()).isTrue();
+        assertThat(back.isHasNext()).isTrue();
+    }
+
+    @Test
+    @DisplayName("H2: keyset-пагинация комментариев и потоковая выдача в том же порядке")
+    void commentPagination() {
+        PostDto post = postService.createPost(PostDto.builder().title("Commented").text("Body").build());
+        for (int i = 1; i <= 5; i++) {
+            commentService.addCommentToPost(post.getId(), CommentDto.builder().text("c" + i).postId(post.getId()).build());
+        }
+
+        List<String> paged = new ArrayList<>();
+        CommentsPageDto page = commentService.getCommentsPage(post.getId(), null, 2);
+        page.getComments().forEach(c -> paged.add(c.getText()));
+        while (page.isHasNext()) {
+            page = commentService.getCommentsPage(post.getId(), page.getNextCursor(), 2);
+            page.getComments().forEach(c -> paged.add(c.getText()));
+        }
+        assertThat(paged).containsExactly("c1", "c2", "c3", "c4", "c5");
+        assertThat(page.getNextCursor()).isNull();
+
+        List<String> streamed = new ArrayList<>();
+        commentService.streamCommentsByPostId(post.getId(), c -> streamed.add(c.getText()));
+        assertThat(streamed).isEqualTo(paged);
+    }
+
+    @Test
+    @DisplayName("H2: ETag поста, ленты и комментариев меняется вместе с содержимым")
+    void etags() {
+        PostDto post = postService.createPost(PostDto.builder().title("Tagged").text("Body").tags(List.of("etag")).build());
+        String postTag = postService.getPostETag(post.getId()).orElseThrow();
+        String feedTag = postService.getAllPosts("#etag", 1, 10).getEtag();
+        String commentsTag = commentService.getCommentsETag(post.getId());
+
+        assertThat(postService.getPostETag(post.getId())).contains(postTag);
+        assertThat(postService.getAllPosts("#etag", 1, 10).getEtag()).isEqualTo(feedTag);
+        assertThat(commentService.getCommentsETag(post.getId())).isEqualTo(commentsTag);
+
+        postService.incrementLikes(post.getId());
+        commentService.addCommentToPost(post.getId(), CommentDto.builder().text("c").postId(post.getId()).build());
+
+        assertThat(postService.getPostETag(post.getId())).isPresent().get().isNotEqualTo(postTag);
+        assertThat(postService.getAllPosts("#etag", 1, 10).getEtag()).isNotEqualTo(feedTag);
+        assertThat(commentService.getCommentsETag(post.getId())).isNotEqualTo(commentsTag);
+        assertThat(postService.getPostETag(-1L)).isEmpty();
+        assertThat(postService.getPostWithETag(post.getId()).orElseThrow().etag())
+                .isEqualTo(postService.getPostETag(post.getId()).orElseThrow());
+
+        // "Aa" и "BB" дают одинаковый String.hashCode: ETag ленты не должен от него зависеть
+        postService.updatePost(post.getId(), PostDto.builder().title("Aa").text("Body").tags(List.of("etag")).build());
+        String before = postService.getAllPosts("#etag", 1, 10).getEtag();
+        postService.updatePost(post.getId(), PostDto.builder().title("BB").text("Body").tags(List.of("etag")).build());
+        assertThat(postService.getAllPosts("#etag", 1, 10).getEtag()).isNotEqualTo(before);
+    }
+
+    @Test
+    @DisplayName("H2: пакетное создание постов и комментариев, счётчик комментариев обновлён одним UPDATE")
+    void batchCreate() {
+        List<PostDto> posts = postService.createPosts(List.of(
+                PostDto.builder().title("Batch 1").text("Body1").tags(List.of("batch")).build(),
+                PostDto.builder().title("Batch 2").text("Body2").tags(List.of("batch")).build(),
+                PostDto.builder().title("Batch 3").text("Body3").tags(List.of("batch")).build()));
+        assertThat(posts).extracting(PostDto::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(posts).extracting(PostDto::getTitle).containsExactly("Batch 1", "Batch 2", "Batch 3");
+        assertThat(postService.getAllPosts("#batch", 1, 10).getPosts()).hasSize(3);
+
+        Long postId = posts.get(1).getId();
+        List<CommentDto> comments = commentService.addCommentsToPost(postId, List.of(
+                CommentDto.builder().text("b1").build(),
+                CommentDto.builder().text("b2").build())).orElseThrow();
+        assertThat(comments).extracting(CommentDto::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(comments).extracting(CommentDto::getPostId).containsOnly(postId);
+        assertThat(commentService.getCommentsByPostId(postId)).extracting(CommentDto::getText).containsExactly("b1", "b2");
+        assertThat(postService.getPostById(postId).orElseThrow().getCommentsCount()).isEqualTo(2);
+
+        assertThat(commentService.addCommentsToPost(-1L, List.of(CommentDto.builder().text("x").build()))).isEmpty();
+    }
 }
@@ -0,0 +1,114 @@
+package com.mirakyan.blog.integration;
+
+import com.mirakyan.blog.config.DatabaseConfiguration;
+import com.mirakyan.blog.config.WebConfiguration;
+import com.mirakyan.blog.controller.CommentController;
+import com.mirakyan.blog.dto.CommentDto;
+import com.mirakyan.blog.dto.PostDto;
+import com.mirakyan.blog.dto.SqlTraceDto;
+import com.mirakyan.blog.metrics.SqlTrace;
+import com.mirakyan.blog.metrics.SqlTracer;
+import com.mirakyan.blog.service.CommentService;
+import com.mirakyan.blog.service.PostService;
+import com.mirakyan.blog.web.SqlTraceInterceptor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Порог 0 мс: любое выражение медленное, трасса каждого запроса попадает в буфер. Отдельная БД, чтобы этот
+// контекст не пересоздавал схему под BlogIntegrationTest
+@ExtendWith(SpringExtension.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = {WebConfiguration.class, DatabaseConfiguration.class})
+@TestPropertySource(properties = {
+        "db.url=jdbc:h2:mem:tracedb;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "sql.trace.slow-statement-ms=0"
+})
+class SqlTraceIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private SqlTracer sqlTracer;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Test
+    @DisplayName("Трасса переходит на поток Callable: выражения ленты с формой параметров и получение соединения")
+    void feedRequestTrace() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+        MvcResult started = mockMvc.perform(get("/api/posts")
+                        .param("search", "")
+                        .param("pageNumber", "1")
+                        .param("pageSize", "5")
+                        .header(SqlTraceInterceptor.REQUEST_ID_HEADER, "feed-1"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SqlTraceInterceptor.REQUEST_ID_HEADER, "feed-1"));
+
+        List<SqlTraceDto> traces = sqlTracer.recentSlowTraces(100);
+        SqlTraceDto trace = traces.stream().filter(t -> "feed-1".equals(t.getRequestId())).findFirst().orElseThrow();
+        assertThat(trace.getUri()).isEqualTo("/api/posts");
+        assertThat(trace.getStatus()).isEqualTo(200);
+        assertThat(trace.getStatementCount()).isPositive();
+        assertThat(trace.getConnectionAcquires()).isPositive();
+        assertThat(trace.getStatements()).allSatisfy(s -> {
+            assertThat(s.getSql()).doesNotContain("\n").doesNotContain("  ");
+            assertThat(s.getParameters()).doesNotContain("null:");
+        });
+        assertThat(trace.getStatements()).anySatisfy(s -> assertThat(s.getParameters()).contains("limit:Integer"));
+        assertThat(SqlTrace.current()).isNull();
+
+        mockMvc.perform(get("/api/admin/sql-traces").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    @DisplayName("Потоковая выдача комментариев в NDJSON тоже попадает в трассу запроса")
+    void ndjsonCommentsTrace() throws Exception {
+        PostDto post = postService.createPost(PostDto.builder().title("Traced").text("Body").tags(List.of()).build());
+        commentService.addCommentToPost(post.getId(), CommentDto.builder().text("c").postId(post.getId()).build());
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+        MvcResult started = mockMvc.perform(get("/api/posts/" + post.getId() + "/comments")
+                        .accept(CommentController.NDJSON)
+                        .header(SqlTraceInterceptor.REQUEST_ID_HEADER, "ndjson-1"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+        SqlTraceDto trace = sqlTracer.recentSlowTraces(100).stream()
+                .filter(t -> "ndjson-1".equals(t.getRequestId())).findFirst().orElseThrow();
+        assertThat(trace.getUri()).isEqualTo("/api/posts/{postId}/comments");
+        assertThat(trace.getStatements()).anySatisfy(s -> {
+            assertThat(s.getSql()).contains("FROM comments");
+            assertThat(s.getParameters()).isEqualTo("postId:Long");
+            assertThat(s.getRows()).isEqualTo(1);
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package com.mirakyan.blog.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Бакеты покрывают значения без пропусков и перекрытий")
+    void bucketBoundsAreContiguous() {
+        for (int i = 0; i < LatencyHistogram.bucketCount() - 1; i++) {
+            assertThat(LatencyHistogram.upperBoundMicros(i) + 1).isEqualTo(LatencyHistogram.lowerBoundMicros(i + 1));
+            assertThat(LatencyHistogram.bucketIndex(LatencyHistogram.lowerBoundMicros(i))).isEqualTo(i);
+            assertThat(LatencyHistogram.bucketIndex(LatencyHistogram.upperBoundMicros(i))).isEqualTo(i);
+        }
+    }
+
+    @Test
+    @DisplayName("Перцентили укладываются в погрешность бакета")
+    void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordMicros(i * 10L);
+        }
+        assertThat(histogram.count()).isEqualTo(1000);
+        assertThat(histogram.maxMicros()).isEqualTo(10_000);
+        assertThat(histogram.percentileMicros(50)).isBetween(5_000L, 5_000L * 9 / 8);
+        assertThat(histogram.percentileMicros(99)).isBetween(9_900L, 10_000L);
+        assertThat(histogram.countAtOrBelowMicros(1_000)).isBetween(100L, 113L);
+    }
+}
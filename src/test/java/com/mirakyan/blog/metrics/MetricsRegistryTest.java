@@ -0,0 +1,109 @@
+package com.mirakyan.blog.metrics;
+
+import com.mirakyan.blog.controller.PostController;
+import com.mirakyan.blog.jdbc.TimedNamedParameterJdbcTemplate;
+import com.mirakyan.blog.service.PostService;
+import com.mirakyan.blog.web.MetricsInterceptor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class MetricsRegistryTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry(500, 120);
+
+    @Test
+    @DisplayName("SQL: задержка, строки и ошибки по выражению; Map-перегрузки идут через замеряемые методы")
+    void timedJdbcTemplate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:metrics-test;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        NamedParameterJdbcTemplate jdbc = new TimedNamedParameterJdbcTemplate(dataSource, metrics, new SqlTracer(false, 100, 500, 10, 100));
+        jdbc.update("CREATE TABLE IF NOT EXISTS t (id INT)", Map.of());
+        MapSqlParameterSource[] rows = {
+                new MapSqlParameterSource("id", 1), new MapSqlParameterSource("id", 2), new MapSqlParameterSource("id", 3)};
+        jdbc.batchUpdate("INSERT INTO t (id) VALUES (:id)", rows);
+        assertThat(jdbc.queryForList("SELECT id FROM t WHERE id >= :min", Map.of("min", 2), Integer.class))
+                .containsExactly(2, 3);
+        assertThatThrownBy(() -> jdbc.update("UPDATE missing SET x = 1", Map.of()))
+                .isInstanceOf(DataAccessException.class);
+
+        PrometheusWriter out = new PrometheusWriter();
+        metrics.writeTo(out);
+        String text = out.toString();
+        assertThat(text)
+                .contains("blog_sql_statement_rows_total{statement=\"INSERT INTO t (id) VALUES (:id)\"} 3")
+                .contains("blog_sql_statement_rows_total{statement=\"SELECT id FROM t WHERE id >= :min\"} 2")
+                .contains("blog_sql_statement_duration_seconds_count{statement=\"SELECT id FROM t WHERE id >= :min\"} 1")
+                .contains("blog_sql_statement_errors_total{statement=\"UPDATE missing SET x = 1\"} 1");
+    }
+
+    @Test
+    @DisplayName("Шаблон с fetchSize для потоковых выборок пишет в те же метрики")
+    void streamingTemplateIsTimed() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:metrics-stream-test;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        NamedParameterJdbcTemplate jdbc = new TimedNamedParameterJdbcTemplate(dataSource, metrics,
+                new SqlTracer(false, 100, 500, 10, 100));
+        NamedParameterJdbcTemplate streaming = TimedNamedParameterJdbcTemplate.withFetchSize(jdbc, 50);
+        assertThat(streaming.getJdbcTemplate().getFetchSize()).isEqualTo(50);
+
+        long[] seen = {0};
+        streaming.query("SELECT x FROM SYSTEM_RANGE(1, 7)", Map.of(), (RowCallbackHandler) rs -> seen[0]++);
+
+        PrometheusWriter out = new PrometheusWriter();
+        metrics.writeTo(out);
+        assertThat(seen[0]).isEqualTo(7);
+        assertThat(out.toString()).contains("blog_sql_statement_rows_total{statement=\"SELECT x FROM SYSTEM_RANGE(1, 7)\"} 7");
+    }
+
+    @Test
+    @DisplayName("HTTP: запрос с Callable учитывается один раз, по шаблону маршрута и итоговому статусу")
+    void requestsByRoutePattern() throws Exception {
+        PostService postService = Mockito.mock(PostService.class);
+        Mockito.when(postService.getPostETag(42L)).thenReturn(Optional.empty());
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new PostController(postService))
+                .addInterceptors(new MetricsInterceptor(metrics))
+                .build();
+
+        MvcResult started = mockMvc.perform(get("/api/posts/42")).andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isNotFound());
+
+        PrometheusWriter out = new PrometheusWriter();
+        metrics.writeTo(out);
+        assertThat(out.toString()).contains(
+                "blog_http_request_duration_seconds_count{method=\"GET\",uri=\"/api/posts/{id}\",status=\"404\"} 1",
+                "blog_http_request_duration_seconds_bucket{method=\"GET\",uri=\"/api/posts/{id}\",status=\"404\",le=\"+Inf\"} 1");
+    }
+
+    @Test
+    @DisplayName("Сверх лимита различных выражений статистика копится в общем ряду other")
+    void statementLimit() {
+        MetricsRegistry limited = new MetricsRegistry(2, 120);
+        for (int i = 0; i < 5; i++) {
+            limited.recordStatement("SELECT " + i, 1_000, 1, false);
+        }
+        PrometheusWriter out = new PrometheusWriter();
+        limited.writeTo(out);
+        assertThat(out.toString())
+                .contains("blog_sql_statement_rows_total{statement=\"SELECT 0\"} 1")
+                .contains("blog_sql_statement_rows_total{statement=\"SELECT 1\"} 1")
+                .contains("blog_sql_statement_rows_total{statement=\"other\"} 3");
+    }
+}
@@ -0,0 +1,54 @@
+package com.mirakyan.blog.metrics;
+
+import com.mirakyan.blog.dto.SqlTraceDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlTracerTest {
+
+    @Test
+    @DisplayName("Кольцевой буфер хранит последние N трасс, от новых к старым; быстрые запросы не сохраняются")
+    void ringBuffer() {
+        SqlTracer tracer = new SqlTracer(true, 50, 0, 3, 100);
+        for (int i = 1; i <= 5; i++) {
+            tracer.finish(tracer.start("r" + i, "GET", "/api/posts"), 200);
+        }
+        assertThat(tracer.recentSlowTraces(10)).extracting(SqlTraceDto::getRequestId).containsExactly("r5", "r4", "r3");
+        assertThat(tracer.recentSlowTraces(2)).extracting(SqlTraceDto::getRequestId).containsExactly("r5", "r4");
+
+        SqlTracer strict = new SqlTracer(true, 10_000, 10_000, 3, 100);
+        strict.finish(strict.start(null, "GET", "/api/posts"), 200);
+        assertThat(strict.recentSlowTraces(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Форма параметров: типы без значений, размер коллекций, число строк batch")
+    void parameterShape() {
+        SqlParameterSource row = new MapSqlParameterSource()
+                .addValue("title", "secret")
+                .addValue("tags", new String[]{"a", "b"})
+                .addValue("ids", List.of(1L, 2L, 3L))
+                .addValue("image", null);
+        assertThat(SqlTracer.parameterShape(row)).isEqualTo("title:String, tags:String[2], ids:List[3], image:null");
+        assertThat(SqlTracer.parameterShape(new SqlParameterSource[]{row, row}))
+                .isEqualTo("title:String, tags:String[2], ids:List[3], image:null x 2");
+    }
+
+    @Test
+    @DisplayName("X-Request-Id принимается только короткий и из безопасных символов, иначе генерируется новый")
+    void requestIdValidation() {
+        SqlTracer tracer = new SqlTracer(true, 100, 500, 3, 100);
+        assertThat(tracer.start("abc-1.2_X", "GET", "/api/posts").getRequestId()).isEqualTo("abc-1.2_X");
+        for (String bad : new String[]{"evil\r\nX-Injected: 1", "a b", "x".repeat(65), "", "<script>"}) {
+            String id = tracer.start(bad, "GET", "/api/posts").getRequestId();
+            assertThat(id).isNotEqualTo(bad).matches("[0-9a-f]{1,16}");
+        }
+        assertThat(tracer.start(null, "GET", "/api/posts").getRequestId()).matches("[0-9a-f]{1,16}");
+    }
+}
@@ -0,0 +1,294 @@
+package com.mirakyan.blog.repository;
+
+import com.mirakyan.blog.model.Post;
+import com.mirakyan.blog.model.PostVersion;
+import com.mirakyan.blog.repository.impl.LikeWriteBehindBuffer;
+import com.mirakyan.blog.repository.impl.PostRepositoryJdbc;
+import com.mirakyan.blog.repository.impl.PreviewBackfill;
+import com.mirakyan.blog.repository.impl.ShardedLikeCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PostRepositoryJdbcTest {
+
+    private DriverManagerDataSource dataSource;
+    private NamedParameterJdbcTemplate jdbc;
+    private ShardedLikeCounter shardedLikes;
+    private LikeWriteBehindBuffer likeBuffer;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:repo-test;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        likeBuffers(false);
+    }
+
+    // интервалы 0 — без фоновых задач, тест сбрасывает буфер и компактирует шарды вручную;
+    // пачка компакции в одну строку, чтобы один проход перебирал несколько пачек
+    private void likeBuffers(boolean sharded) {
+        DataSourceTransactionManager tm = new DataSourceTransactionManager(dataSource);
+        shardedLikes = new ShardedLikeCounter(jdbc, tm, dataSource, sharded, 4, 0, 1, 5000);
+        likeBuffer = new LikeWriteBehindBuffer(jdbc, shardedLikes, tm, true, 0, 2);
+    }
+
+    private PostRepositoryJdbc repository(String titleSearchMode) {
+        return new PostRepositoryJdbc(jdbc, dataSource, likeBuffer, shardedLikes, titleSearchMode, false, "auto", 5000, 500);
+    }
+
+    private void insert(PostRepository repository, String title) {
+        repository.save(new Post(title, "Body", List.of()));
+    }
+
+    @Test
+    @DisplayName("fulltext на H2: все слова запроса должны встретиться в заголовке, порядок не важен")
+    void fullTextFallbackOnH2() {
+        PostRepositoryJdbc repository = repository("fulltext");
+        insert(repository, "Spring Data JDBC");
+        insert(repository, "Data pipelines in Java");
+        insert(repository, "Spring MVC");
+
+        assertThat(repository.findFiltered("jdbc spring", null, 0, 10))
+                .extracting(Post::getTitle).containsExactly("Spring Data JDBC");
+        assertThat(repository.countFiltered("data", null)).isEqualTo(2);
+        // знаки препинания не ломают запрос
+        assertThat(repository.countFiltered("spring, mvc!", null)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("substring: поиск по точной подстроке заголовка")
+    void substringSearch() {
+        PostRepositoryJdbc repository = repository("substring");
+        insert(repository, "Spring Data JDBC");
+        insert(repository, "Data pipelines in Java");
+
+        assertThat(repository.countFiltered("jdbc spring", null)).isZero();
+        assertThat(repository.countFiltered("data jdbc", null)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("триграммный индекс: подстрока внутри слова, обновление и удаление заголовка")
+    void trigramSubstringSearch() {
+        PostRepositoryJdbc repository = repository("substring");
+        insert(repository, "My blogroll");
+        insert(repository, "Progress report");
+        insert(repository, "100% coverage");
+
+        assertThat(repository.findFiltered("ogr", null, 0, 10))
+                .extracting(Post::getTitle).containsExactlyInAnyOrder("My blogroll", "Progress report");
+        assertThat(repository.countFiltered("blogr", null)).isEqualTo(1);
+        assertThat(repository.countFiltered("xyz", null)).isZero();
+        // короче триграммы — обычный LIKE
+        assertThat(repository.countFiltered("og", null)).isEqualTo(2);
+        // % ищется буквально, а не как шаблон
+        assertThat(repository.countFiltered("0% c", null)).isEqualTo(1);
+        assertThat(repository.countFiltered("%", null)).isEqualTo(1);
+
+        Post post = repository.findFiltered("blogroll", null, 0, 1).get(0);
+        post.setTitle("Renamed");
+        repository.save(post);
+        assertThat(repository.countFiltered("blogroll", null)).isZero();
+        assertThat(repository.countFiltered("named", null)).isEqualTo(1);
+
+        repository.deleteById(post.getId());
+        assertThat(repository.countFiltered("named", null)).isZero();
+    }
+
+    @Test
+    @DisplayName("лента читает хранимое превью, пост по id — полный текст")
+    void feedReadsPreviewOnly() {
+        PostRepositoryJdbc repository = repository("substring");
+        String longText = "x".repeat(10_000);
+        Post saved = repository.save(new Post("Long", longText, List.of()));
+        repository.save(new Post("Short", "Body", List.of()));
+
+        assertThat(repository.findFiltered(null, null, 0, 10))
+                .extracting(post -> post.getText().length())
+                .containsExactlyInAnyOrder(PostRepository.PREVIEW_LENGTH + 1, 4);
+        assertThat(repository.findPageWithTotal(null, null, 0, 10).posts())
+                .extracting(Post::getText).allMatch(text -> text.length() <= PostRepository.PREVIEW_LENGTH + 1);
+        assertThat(repository.findFilteredByCursor(null, null, null, 10))
+                .extracting(Post::getText).allMatch(text -> text.length() <= PostRepository.PREVIEW_LENGTH + 1);
+        assertThat(repository.findById(saved.getId()).orElseThrow().getText()).isEqualTo(longText);
+    }
+
+    @Test
+    @DisplayName("превью: суррогатная пара на границе не теряет признак длинного текста, старые строки заполняются пачками")
+    void previewMarkerAndBackfill() {
+        PostRepositoryJdbc repository = repository("substring");
+        String emojiAtBoundary = "x".repeat(PostRepository.PREVIEW_LENGTH) + "😀".repeat(10);
+        repository.save(new Post("Emoji", emojiAtBoundary, List.of()));
+
+        String preview = repository.findFiltered(null, null, 0, 10).get(0).getText();
+        assertThat(preview).hasSize(PostRepository.PREVIEW_LENGTH + 1).startsWith("x".repeat(PostRepository.PREVIEW_LENGTH));
+
+        for (int i = 0; i < 5; i++) {
+            repository.save(new Post("Old " + i, "y".repeat(200), List.of()));
+        }
+        jdbc.update("UPDATE posts SET preview = NULL", java.util.Map.of());
+        assertThat(new PreviewBackfill(jdbc, 2).backfill()).isEqualTo(6);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM posts WHERE preview IS NULL", java.util.Map.of(), Integer.class)).isZero();
+        assertThat(repository.findFiltered(null, null, 0, 10))
+                .extracting(post -> post.getText().length()).containsOnly(PostRepository.PREVIEW_LENGTH + 1);
+    }
+
+    @Test
+    @DisplayName("теги читаются из массива H2 (Object[]) и в ленте, и по id")
+    void tagsRoundTrip() {
+        PostRepositoryJdbc repository = repository("substring");
+        Post saved = repository.save(new Post("Tagged", "Body", List.of("java", "jdbc")));
+
+        assertThat(repository.findById(saved.getId()).orElseThrow().getTags()).containsExactly("java", "jdbc");
+        assertThat(repository.findFiltered(null, List.of("jdbc"), 0, 10).get(0).getTags()).containsExactly("java", "jdbc");
+    }
+
+    @Test
+    @DisplayName("лайки копятся в буфере и сбрасываются в БД пачкой")
+    void writeBehindLikes() {
+        PostRepositoryJdbc repository = repository("substring");
+        Post first = repository.save(new Post("First", "Body", List.of()));
+        Post second = repository.save(new Post("Second", "Body", List.of()));
+        Post third = repository.save(new Post("Third", "Body", List.of()));
+
+        assertThat(repository.incrementLikesAndGet(first.getId())).contains(1);
+        assertThat(repository.incrementLikesAndGet(first.getId())).contains(2);
+        assertThat(repository.incrementLikesAndGet(second.getId())).contains(1);
+        assertThat(repository.incrementLikesAndGet(third.getId())).contains(1);
+        assertThat(repository.incrementLikesAndGet(999L)).isEmpty();
+        assertThat(persistedLikes(first.getId())).isZero();
+        assertThat(repository.findById(first.getId()).orElseThrow().getLikesCount()).isEqualTo(2);
+
+        likeBuffer.flush();
+        assertThat(persistedLikes(first.getId())).isEqualTo(2);
+        assertThat(persistedLikes(second.getId())).isEqualTo(1);
+        assertThat(persistedLikes(third.getId())).isEqualTo(1);
+        assertThat(likeBuffer.pendingDelta(first.getId())).isZero();
+        assertThat(repository.incrementLikesAndGet(first.getId())).contains(3);
+    }
+
+    @Test
+    @DisplayName("правка поста не записывает несброшенные лайки в likes_count: после сброса счёт точный")
+    void editDoesNotPersistPendingLikes() {
+        PostRepositoryJdbc repository = repository("substring");
+        Post post = repository.save(new Post("Liked", "Body", List.of()));
+        repository.incrementLikesAndGet(post.getId());
+        repository.incrementLikesAndGet(post.getId());
+
+        Post loaded = repository.findById(post.getId()).orElseThrow();
+        assertThat(loaded.getLikesCount()).isEqualTo(2);
+        loaded.setTitle("Edited");
+        repository.save(loaded);
+        likeBuffer.flush();
+
+        assertThat(persistedLikes(post.getId())).isEqualTo(2);
+        assertThat(repository.findById(post.getId()).orElseThrow().getLikesCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("сбой второй пачки: первая уже в БД и не считается дважды, незаписанные дельты возвращаются в буфер")
+    void writeBehindPartialFailure() {
+        PostRepositoryJdbc repository = repository("substring");
+        Post first = repository.save(new Post("First", "Body", List.of()));
+        Post second = repository.save(new Post("Second", "Body", List.of()));
+        Post third = repository.save(new Post("Third", "Body", List.of()));
+        repository.incrementLikesAndGet(first.getId());
+        repository.incrementLikesAndGet(first.getId());
+        repository.incrementLikesAndGet(second.getId());
+        repository.incrementLikesAndGet(third.getId());
+        // пачки по 2 поста: (first, second) проходит, (third) падает на ограничении
+        jdbc.update("ALTER TABLE posts ADD CONSTRAINT no_third_likes CHECK (id <> " + third.getId() + " OR likes_count = 0)", java.util.Map.of());
+
+        assertThatThrownBy(likeBuffer::flush).isInstanceOf(RuntimeException.class);
+        assertThat(persistedLikes(first.getId())).isEqualTo(2);
+        assertThat(likeBuffer.pendingDelta(first.getId())).isZero();
+        assertThat(repository.findById(first.getId()).orElseThrow().getLikesCount()).isEqualTo(2);
+        assertThat(likeBuffer.pendingDelta(third.getId())).isEqualTo(1);
+        assertThat(repository.findById(third.getId()).orElseThrow().getLikesCount()).isEqualTo(1);
+
+        jdbc.update("ALTER TABLE posts DROP CONSTRAINT no_third_likes", java.util.Map.of());
+        likeBuffer.flush();
+        assertThat(persistedLikes(third.getId())).isEqualTo(1);
+        assertThat(likeBuffer.pendingDelta(third.getId())).isZero();
+    }
+
+    @Test
+    @DisplayName("шардированные лайки: запись в шарды, чтение суммой, компакция в posts.likes_count")
+    void shardedLikes() {
+        likeBuffers(true);
+        PostRepositoryJdbc repository = repository("substring");
+        Post post = repository.save(new Post("Viral", "Body", List.of()));
+        Post removed = repository.save(new Post("Removed", "Body", List.of()));
+
+        for (int i = 0; i < 10; i++) {
+            repository.incrementLikesAndGet(post.getId());
+            likeBuffer.flush();
+        }
+        repository.incrementLikesAndGet(removed.getId());
+        repository.deleteById(removed.getId());
+        likeBuffer.flush();
+
+        assertThat(persistedLikes(post.getId())).isZero();
+        assertThat(jdbc.queryForObject("SELECT SUM(count) FROM post_like_shards", java.util.Map.of(), Long.class)).isEqualTo(10);
+        assertThat(repository.findById(post.getId()).orElseThrow().getLikesCount()).isEqualTo(10);
+        assertThat(repository.incrementLikesAndGet(post.getId())).contains(11);
+        likeBuffer.flush();
+
+        assertThat(shardedLikes.compact()).isEqualTo(11);
+        assertThat(persistedLikes(post.getId())).isEqualTo(11);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM post_like_shards", java.util.Map.of(), Integer.class)).isZero();
+        assertThat(repository.findById(post.getId()).orElseThrow().getLikesCount()).isEqualTo(11);
+    }
+
+    @Test
+    @DisplayName("шардированные лайки: правка поста не переносит сумму шардов в posts.likes_count")
+    void shardedEditDoesNotPersistShardSum() {
+        likeBuffers(true);
+        PostRepositoryJdbc repository = repository("substring");
+        Post post = repository.save(new Post("Sharded", "Body", List.of()));
+        for (int i = 0; i < 3; i++) {
+            repository.incrementLikesAndGet(post.getId());
+        }
+        likeBuffer.flush();
+
+        Post loaded = repository.findById(post.getId()).orElseThrow();
+        assertThat(loaded.getLikesCount()).isEqualTo(3);
+        loaded.setText("Edited");
+        repository.save(loaded);
+
+        assertThat(persistedLikes(post.getId())).isZero();
+        assertThat(repository.findById(post.getId()).orElseThrow().getLikesCount()).isEqualTo(3);
+        assertThat(shardedLikes.compact()).isEqualTo(3);
+        assertThat(persistedLikes(post.getId())).isEqualTo(3);
+        assertThat(repository.findById(post.getId()).orElseThrow().getLikesCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("версия поста: NULL в updated_at у старой таблицы без NOT NULL не роняет запрос версии")
+    void versionWithNullUpdatedAt() {
+        PostRepositoryJdbc repository = repository("substring");
+        Post post = repository.save(new Post("Legacy", "Body", List.of()));
+        jdbc.update("ALTER TABLE posts ALTER COLUMN updated_at SET NULL", java.util.Map.of());
+        jdbc.update("UPDATE posts SET updated_at = NULL WHERE id = :id", java.util.Map.of("id", post.getId()));
+
+        assertThat(repository.findVersion(post.getId())).get()
+                .satisfies(version -> assertThat(version.updatedAt()).isNull())
+                .extracting(PostVersion::etag)
+                .isEqualTo(PostVersion.of(repository.findById(post.getId()).orElseThrow()).etag());
+    }
+
+    private int persistedLikes(long id) {
+        return jdbc.queryForObject("SELECT likes_count FROM posts WHERE id=:id", java.util.Map.of("id", id), Integer.class);
+    }
+}
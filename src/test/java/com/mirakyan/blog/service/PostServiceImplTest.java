@@ -1,8 +1,11 @@
 package com.mirakyan.blog.service;
 
+import com.mirakyan.blog.cache.FeedCache;
+import com.mirakyan.blog.cache.PostCache;
 import com.mirakyan.blog.dto.PostDto;
 import com.mirakyan.blog.dto.PostsResponseDto;
 import com.mirakyan.blog.model.Post;
+import com.mirakyan.blog.model.PostPage;
 import com.mirakyan.blog.repository.PostRepository;
 import com.mirakyan.blog.service.impl.PostServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,7 +15,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
 
 import java.time.Instant;
 import java.util.Arrays;
@@ -29,6 +40,12 @@ class PostServiceImplTest {
     @Mock
     private PostRepository postRepository;
 
+    @Spy
+    private PostCache postCache = new PostCache(true, 100, 60);
+
+    @Spy
+    private FeedCache feedCache = new FeedCache(true, 100, 60);
+
     @InjectMocks
     private PostServiceImpl postService;
 
@@ -103,6 +120,24 @@ class PostServiceImplTest {
         assertThat(newLikes).contains(3);
     }
 
+    @Test
+    @DisplayName("getPostById: повторное чтение из кэша, лайк обновляет кэш, изменение инвалидирует")
+    void getPostByIdCached() {
+        when(postRepository.findById(1L)).thenReturn(Optional.of(existing));
+        when(postRepository.incrementLikesAndGet(1L)).thenReturn(Optional.of(3));
+        when(postRepository.save(any(Post.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        assertThat(postService.getPostById(1L)).isPresent();
+        postService.incrementLikes(1L);
+        assertThat(postService.getPostById(1L).orElseThrow().getLikesCount()).isEqualTo(3);
+        verify(postRepository, times(1)).findById(1L);
+
+        postService.updatePost(1L, PostDto.builder().title("Updated").text("Body").build());
+        assertThat(postService.getPostById(1L).orElseThrow().getTitle()).isEqualTo("Updated");
+        verify(postRepository, times(3)).findById(1L);
+        assertThat(postCache.stats().getHits()).isEqualTo(1);
+    }
+
     @Test
     @DisplayName("incrementLikes: пост не найден => empty")
     void incrementLikesNotFound() {
@@ -136,21 +171,85 @@ class PostServiceImplTest {
                 .tags(new String[]{"java"}).createdAt(Instant.now().minusSeconds(10)).updatedAt(Instant.now()).build();
 
         // Сценарий 1: поиск по тегам #spring #data
-        when(postRepository.countFiltered(eq(""), eq(List.of("spring", "data")))).thenReturn(1);
-        when(postRepository.findFiltered(eq(""), eq(List.of("spring", "data")), eq(0), eq(10))).thenReturn(List.of(p1));
+        when(postRepository.findPageWithTotal(eq(""), eq(List.of("data", "spring")), eq(0), eq(10))).thenReturn(new PostPage(List.of(p1), 1));
         PostsResponseDto onlyP1 = postService.getAllPosts("#spring  #data", 1, 10);
         assertThat(onlyP1.getPosts()).hasSize(1);
         assertThat(onlyP1.getPosts().get(0).getId()).isEqualTo(1L);
         assertThat(onlyP1.getPosts().get(0).getText().length()).isEqualTo(128 + 1); // обрезка + …
 
         // Сценарий 2: пустой поиск, две записи, пагинация размером 1
-        when(postRepository.countFiltered(eq(""), isNull())).thenReturn(2);
-        when(postRepository.findFiltered(eq(""), isNull(), eq(1), eq(1))).thenReturn(List.of(p2)); // offset=1 (вторая страница)
+        when(postRepository.findPageWithTotal(eq(""), isNull(), eq(1), eq(1))).thenReturn(new PostPage(List.of(p2), 2)); // offset=1 (вторая страница)
         PostsResponseDto page2 = postService.getAllPosts("", 2, 1);
         assertThat(page2.getPosts()).hasSize(1);
         assertThat(page2.getPosts().get(0).getId()).isEqualTo(2L);
         assertThat(page2.isHasPrev()).isTrue();
         assertThat(page2.isHasNext()).isFalse();
         assertThat(page2.getLastPage()).isEqualTo(2);
+        verify(postRepository, never()).countFiltered(any(), any());
+    }
+
+    @Test
+    @DisplayName("getAllPosts без total: limit + 1 строка вместо COUNT")
+    void getAllPostsWithoutTotal() {
+        Post p1 = Post.builder().id(1L).title("A").text("a").tags(new String[0]).build();
+        Post p2 = Post.builder().id(2L).title("B").text("b").tags(new String[0]).build();
+        Post p3 = Post.builder().id(3L).title("C").text("c").tags(new String[0]).build();
+        when(postRepository.findFiltered(eq(""), isNull(), eq(2), eq(3))).thenReturn(List.of(p1, p2, p3));
+
+        PostsResponseDto page = postService.getAllPosts("", 2, 2, false);
+        assertThat(page.getPosts()).extracting(PostDto::getId).containsExactly(1L, 2L);
+        assertThat(page.isHasNext()).isTrue();
+        assertThat(page.isHasPrev()).isTrue();
+        assertThat(page.getLastPage()).isNull();
+        verify(postRepository, never()).countFiltered(any(), any());
+        verify(postRepository, never()).findPageWithTotal(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getAllPosts: повторный запрос из кэша ленты, создание поста сбрасывает кэш")
+    void getAllPostsCached() {
+        when(postRepository.findPageWithTotal(eq(""), eq(List.of("data", "spring")), eq(0), eq(10))).thenReturn(new PostPage(List.of(existing), 1));
+        when(postRepository.save(any(Post.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        postService.getAllPosts("#spring #data", 1, 10);
+        postService.getAllPosts("  #DATA #spring #data ", 1, 10);
+        verify(postRepository, times(1)).findPageWithTotal(any(), any(), anyInt(), anyInt());
+
+        postService.createPost(PostDto.builder().title("New").text("Body").build());
+        postService.getAllPosts("#spring #data", 1, 10);
+        verify(postRepository, times(2)).findPageWithTotal(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getImage и existsById под транзакционным прокси наполняют кэш постов: повтор без обращения к репозиторию")
+    void imageAndExistsAreCachedUnderTransactions() {
+        when(postRepository.findById(1L)).thenReturn(Optional.of(existing));
+        // Пустой менеджер транзакций: важны только флаги транзакции, которые видит PostCache
+        PlatformTransactionManager tm = new AbstractPlatformTransactionManager() {
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) {
+            }
+        };
+        ProxyFactory proxyFactory = new ProxyFactory(postService);
+        proxyFactory.addAdvice(new TransactionInterceptor(tm, new AnnotationTransactionAttributeSource()));
+        PostService transactional = (PostService) proxyFactory.getProxy();
+
+        assertThat(transactional.getImage(1L, null)).isEmpty();
+        assertThat(transactional.getImage(1L, null)).isEmpty();
+        assertThat(transactional.existsById(1L)).isTrue();
+        verify(postRepository, times(1)).findById(1L);
     }
 }
@@ -0,0 +1,119 @@
+package com.mirakyan.blog.service;
+
+import com.mirakyan.blog.cache.FeedCache;
+import com.mirakyan.blog.dto.TransferProgressDto;
+import com.mirakyan.blog.model.Comment;
+import com.mirakyan.blog.model.Post;
+import com.mirakyan.blog.repository.impl.CommentRepositoryJdbc;
+import com.mirakyan.blog.repository.impl.LikeWriteBehindBuffer;
+import com.mirakyan.blog.repository.impl.PostRepositoryJdbc;
+import com.mirakyan.blog.repository.impl.ShardedLikeCounter;
+import com.mirakyan.blog.service.impl.TransferServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferServiceImplTest {
+
+    private DriverManagerDataSource dataSource;
+    private PostRepositoryJdbc posts;
+    private CommentRepositoryJdbc comments;
+    private TransferServiceImpl transfer;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:transfer-test;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(dataSource);
+        DataSourceTransactionManager tm = new DataSourceTransactionManager(dataSource);
+        ShardedLikeCounter shardedLikes = new ShardedLikeCounter(jdbc, tm, dataSource, false, 4, 0, 1000, 5000);
+        LikeWriteBehindBuffer likeBuffer = new LikeWriteBehindBuffer(jdbc, shardedLikes, tm, false, 0, 2);
+        posts = new PostRepositoryJdbc(jdbc, dataSource, likeBuffer, shardedLikes, "substring", false, "auto", 5000, 500);
+        comments = new CommentRepositoryJdbc(jdbc, 500);
+        // порция из двух записей — чтобы импорт шёл несколькими транзакциями
+        transfer = new TransferServiceImpl(posts, comments, new FeedCache(false, 0, 1), tm, 2, 100000);
+    }
+
+    @Test
+    @DisplayName("Выгрузка и загрузка в пустую БД дают ту же выгрузку, новые id идут после загруженных")
+    void exportImportRoundTrip() throws Exception {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<Post> saved = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            saved.add(posts.save(Post.builder().title("Post " + i).text("Текст \"" + i + "\"\nстрока")
+                    .tags(new String[]{"java", "tag" + i}).likesCount(i).commentsCount(0)
+                    .createdAt(now).updatedAt(now).build()));
+        }
+        for (int i = 0; i < 5; i++) {
+            comments.save(Comment.builder().postId(saved.get(i % 3).getId()).text("c" + i)
+                    .createdAt(now).updatedAt(now).build());
+        }
+        String exported = export();
+        assertThat(exported.lines()).hasSize(8);
+
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        TransferProgressDto progress = transfer.importAll(stream(exported), 0, 0);
+
+        assertThat(progress.getState()).isEqualTo(TransferProgressDto.State.COMPLETED);
+        assertThat(progress.getPostsImported()).isEqualTo(3);
+        assertThat(progress.getCommentsImported()).isEqualTo(5);
+        assertThat(export()).isEqualTo(exported);
+        Post next = posts.save(Post.builder().title("After").text("x").tags(new String[0]).likesCount(0).commentsCount(0)
+                .createdAt(now).updatedAt(now).build());
+        assertThat(next.getId()).isGreaterThan(saved.get(2).getId());
+    }
+
+    @Test
+    @DisplayName("Сбой посреди потока: зафиксированные порции остаются, повтор с lastPostId/lastCommentId дозагружает остальное")
+    void resumeAfterFailure() {
+        String good = """
+                {"type":"post","id":1,"title":"A","text":"a","tags":[]}
+                {"type":"post","id":2,"title":"B","text":"b","tags":["x"]}
+                {"type":"post","id":3,"title":"C","text":"c","tags":[]}
+                """;
+        TransferProgressDto failed = transfer.importAll(stream(good + "{\"type\":\"post\",\"title\":\"broken\"}\n"), 0, 0);
+
+        assertThat(failed.getState()).isEqualTo(TransferProgressDto.State.FAILED);
+        assertThat(failed.getError()).contains("строке 4");
+        assertThat(failed.getLastPostId()).isEqualTo(2);
+        assertThat(posts.findById(2L)).isPresent();
+        assertThat(posts.findById(3L)).isEmpty();
+
+        String rest = good + """
+                {"type":"comment","id":10,"postId":3,"text":"hi"}
+                """;
+        TransferProgressDto resumed = transfer.importAll(stream(rest), failed.getLastPostId(), failed.getLastCommentId());
+
+        assertThat(resumed.getState()).isEqualTo(TransferProgressDto.State.COMPLETED);
+        assertThat(resumed.getSkipped()).isEqualTo(2);
+        assertThat(resumed.getPostsImported()).isEqualTo(1);
+        assertThat(resumed.getLastCommentId()).isEqualTo(10);
+        assertThat(transfer.getImportProgress()).contains(resumed);
+    }
+
+    private String export() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transfer.exportAll(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static ByteArrayInputStream stream(String ndjson) {
+        return new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,93 @@
+package com.mirakyan.blog.web;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class CompressionFilterTest {
+
+    private static final String LARGE = "{\"text\":\"" + "Long post text. ".repeat(200) + "\"}";
+
+    @RestController
+    static class TestController {
+
+        @GetMapping(value = "/json", produces = MediaType.APPLICATION_JSON_VALUE)
+        ResponseEntity<String> json(@RequestParam(defaultValue = "true") boolean large) {
+            return ResponseEntity.ok().eTag("\"v1\"").body(large ? LARGE : "{\"ok\":true}");
+        }
+
+        @GetMapping(value = "/image", produces = MediaType.IMAGE_PNG_VALUE)
+        byte[] image() {
+            return new byte[4096];
+        }
+    }
+
+    private final CompressionFilter filter = new CompressionFilter(true, 1024, 5,
+            "application/json,text/plain", 4, 8192);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new TestController())
+            .addFilters(filter)
+            .build();
+
+    @Test
+    @DisplayName("Большой JSON сжимается gzip, ETag становится слабым")
+    void gzipLargeJson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/json").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"v1\""))
+                .andReturn();
+
+        byte[] body = result.getResponse().getContentAsByteArray();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals(LARGE, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("Deflate выбирается, если gzip запрещён (q=0)")
+    void deflateWhenGzipRejected() throws Exception {
+        MvcResult result = mockMvc.perform(get("/json").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate"))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "deflate"))
+                .andReturn();
+
+        byte[] body = result.getResponse().getContentAsByteArray();
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(body))) {
+            assertEquals(LARGE, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("Маленький ответ, изображение и запрос без Accept-Encoding не сжимаются")
+    void skipped() throws Exception {
+        mockMvc.perform(get("/json").param("large", "false").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string("{\"ok\":true}"));
+
+        mockMvc.perform(get("/image").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().bytes(new byte[4096]));
+
+        mockMvc.perform(get("/json"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string(LARGE));
+    }
+}
@@ -5,6 +5,7 @@ CREATE TABLE posts (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     title VARCHAR(255) NOT NULL,
     text CLOB NOT NULL,
+    preview VARCHAR(129),
     created_at TIMESTAMP NOT NULL,
     updated_at TIMESTAMP NOT NULL,
     likes_count INTEGER NOT NULL,
@@ -1,4 +1,5 @@
 -- H2-compatible schema with quoted identifiers to match Spring Data JDBC generated SQL
+DROP TABLE IF EXISTS post_like_shards;
 DROP TABLE IF EXISTS comments;
 DROP TABLE IF EXISTS posts;
 
@@ -6,6 +7,7 @@ CREATE TABLE posts (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     title VARCHAR(255) NOT NULL,
     text CLOB NOT NULL,
+    preview VARCHAR(129),
     created_at TIMESTAMP NOT NULL,
     updated_at TIMESTAMP NOT NULL,
     likes_count INTEGER NOT NULL,
@@ -22,3 +24,14 @@ CREATE TABLE comments (
     updated_at TIMESTAMP NOT NULL,
     CONSTRAINT fk_comments_post FOREIGN KEY (post_id) REFERENCES posts(id) ON DELETE CASCADE
 );
+
+CREATE TABLE post_like_shards (
+    post_id BIGINT NOT NULL,
+    shard SMALLINT NOT NULL,
+    count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (post_id, shard),
+    CONSTRAINT fk_like_shards_post FOREIGN KEY (post_id) REFERENCES posts(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_posts_created_at_id ON posts(created_at DESC, id DESC);
+CREATE INDEX idx_posts_image_path ON posts(image_path);